@@ -2,6 +2,7 @@
  * Class that handles the delete command.
  * This command is used to delete a giveaway from the database
  * Only users with the ADMINISTRATOR permission can use this command
+ * A recurring giveaway is deleted with the title of its template, the giveaways it already started are kept
  * USAGE: /giveaway delete --giveaway_title "title"
  */
 
@@ -11,7 +12,9 @@ import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEve
 import net.dv8tion.jda.api.interactions.commands.OptionMapping;
 
 import org.example.entities.GiveawayEntity;
+import org.example.entities.RecurringGiveawayEntity;
 import org.example.services.GiveawayService;
+import org.example.services.RecurringGiveawayService;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,8 +22,12 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import org.example.utils.GiveawayScheduler;
 import org.example.utils.GiveawayUtil;
 import org.example.utils.LocalizationUtil;
+import org.example.utils.MessageDispatcher;
+import org.example.utils.RecurringGiveawayScheduler;
+import org.example.utils.ReplyUtil;
 
 import java.text.MessageFormat;
 import java.util.Optional;
@@ -32,17 +39,26 @@ public class DeleteCommand {
 
     private final GiveawayService giveawayService;
     private final LocalizationUtil localizationUtil;
+    private final GiveawayScheduler giveawayScheduler;
+    private final MessageDispatcher messageDispatcher;
+    private final RecurringGiveawayService recurringGiveawayService;
+    private final RecurringGiveawayScheduler recurringGiveawayScheduler;
 
     @Autowired
-    public DeleteCommand(GiveawayService giveawayService, LocalizationUtil localizationUtil) {
+    public DeleteCommand(GiveawayService giveawayService, LocalizationUtil localizationUtil, GiveawayScheduler giveawayScheduler, MessageDispatcher messageDispatcher,
+                         RecurringGiveawayService recurringGiveawayService, RecurringGiveawayScheduler recurringGiveawayScheduler) {
         this.giveawayService = giveawayService;
         this.localizationUtil = localizationUtil;
+        this.giveawayScheduler = giveawayScheduler;
+        this.messageDispatcher = messageDispatcher;
+        this.recurringGiveawayService = recurringGiveawayService;
+        this.recurringGiveawayScheduler = recurringGiveawayScheduler;
     }
 
     public void handleDeleteCommand(SlashCommandInteractionEvent event) {
         // Ensure the guild is not null
         if (event.getGuild() == null) {
-            event.reply("This command can only be used in a server.").setEphemeral(true).queue();
+            ReplyUtil.reply(event, "This command can only be used in a server.", true);
             return;
         }
 
@@ -51,7 +67,7 @@ public class DeleteCommand {
         // Ensure the user has the ADMINISTRATOR permission
         if (event.getMember() == null || !event.getMember().hasPermission(net.dv8tion.jda.api.Permission.ADMINISTRATOR)) {
             LOGGER.warn("User {} does not have permission to use the giveaway command", event.getUser());
-            event.reply(localizationUtil.getLocalizedMessage(guildId, "no_permission")).setEphemeral(true).queue();
+            ReplyUtil.reply(event, localizationUtil.getLocalizedMessage(guildId, "no_permission"), true);
             return;
         }
 
@@ -63,23 +79,33 @@ public class DeleteCommand {
         // Check if the title is null
         if (title == null) {
             LOGGER.warn("User {} did not provide a title for the giveaway. Deletion failed", event.getUser());
-            event.reply(localizationUtil.getLocalizedMessage(guildId, "missing_title")).setEphemeral(true).queue();
+            ReplyUtil.reply(event, localizationUtil.getLocalizedMessage(guildId, "missing_title"), true);
             return;
         }
 
         // Retrieve the giveaway by title and guild ID
         GiveawayEntity giveaway = giveawayService.getGiveawayByTitleAndGuildId(title, guildId);
         if (giveaway == null) {
+            // The title may be the one of a recurring giveaway
+            RecurringGiveawayEntity template = recurringGiveawayService.getTemplateByTitleAndGuildId(title, guildId);
+            if (template != null) {
+                recurringGiveawayService.deleteTemplate(template.getId());
+                recurringGiveawayScheduler.rearm();
+                ReplyUtil.reply(event, MessageFormat.format(localizationUtil.getLocalizedMessage(guildId, "recurring_deleted"), title), true);
+                return;
+            }
+
             LOGGER.warn("Giveaway with title {} not found in the database", title);
-            event.reply(MessageFormat.format(localizationUtil.getLocalizedMessage(guildId, "no_giveaway_found"), title)).setEphemeral(true).queue();
+            ReplyUtil.reply(event, MessageFormat.format(localizationUtil.getLocalizedMessage(guildId, "no_giveaway_found"), title), true);
             return;
         }
-        // Cancel the scheduled end for the giveaway
-        GiveawayUtil.cancelScheduledGiveawayEnd(giveaway);
+        // Cancel the scheduled end for the giveaway, or its start if it is only planned
+        new GiveawayUtil(localizationUtil, giveawayScheduler, messageDispatcher).cancelScheduledGiveawayEnd(giveaway);
+        giveawayScheduler.cancel(GiveawayScheduler.TaskType.PLANNED_START, giveaway.getId());
 
         // Delete the giveaway from the database
         giveawayService.deleteGiveaway(giveaway.getId());
-        event.reply(MessageFormat.format(localizationUtil.getLocalizedMessage(guildId, "giveaway_deleted"), title)).setEphemeral(true).queue();
+        ReplyUtil.reply(event, MessageFormat.format(localizationUtil.getLocalizedMessage(guildId, "giveaway_deleted"), title), true);
         LOGGER.info("Giveaway with title {} has been deleted from the database.", title);
     }
 }
\ No newline at end of file
@@ -3,10 +3,14 @@
  * This command is used to create a new giveaway
  * Only users with the ADMINISTRATOR permission can use this command
  * USAGE: /giveaway create --title "title" --prize "prize" --duration "duration" --winners "winners" [--channel "channel"] <- optional param
+ * It also listens to the 🎉 reactions on giveaway messages: adding the reaction enters the giveaway, removing it withdraws the entry
  */
 
 package commands;
 
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
 import net.dv8tion.jda.api.EmbedBuilder;
 import org.example.entities.GiveawayEntity;
 
@@ -14,6 +18,7 @@ import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
 import net.dv8tion.jda.api.entities.emoji.Emoji;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
 import net.dv8tion.jda.api.events.message.react.MessageReactionAddEvent;
+import net.dv8tion.jda.api.events.message.react.MessageReactionRemoveEvent;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
 import net.dv8tion.jda.api.interactions.commands.OptionMapping;
 
@@ -22,32 +27,52 @@ import org.slf4j.LoggerFactory;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.example.services.EntryBufferService;
 import org.example.services.GiveawayService;
 import org.example.services.WinnerService;
 
 import org.example.utils.DurationParser;
 import org.example.utils.EmbedUtil;
+import org.example.utils.GiveawayScheduler;
 import org.example.utils.GiveawayUtil;
 import org.example.utils.LocalizationUtil;
+import org.example.utils.MessageDispatcher;
+import org.example.utils.ReminderSchedule;
+import org.example.utils.ReplyUtil;
 
 import java.time.Instant;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class GiveawayCommand extends ListenerAdapter {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(GiveawayCommand.class);
+    private static final Emoji ENTRY_EMOJI = Emoji.fromUnicode("🎉");
 
     private final GiveawayService giveawayService;
     private final WinnerService winnerService;
+    private final EntryBufferService entryBufferService;
     private final LocalizationUtil localizationUtil;
+    private final GiveawayScheduler giveawayScheduler;
+    private final MessageDispatcher messageDispatcher;
+
+    // Time from receiving a reaction to buffering the entry, by result
+    private final Timer enteredTimer = reactionTimer("entered");
+    private final Timer duplicateTimer = reactionTimer("duplicate");
+    private final Timer unknownGiveawayTimer = reactionTimer("unknown_giveaway");
+    private final Timer withdrawnTimer = reactionTimer("withdrawn");
 
     @Autowired
-    public GiveawayCommand(GiveawayService giveawayService, WinnerService winnerService, LocalizationUtil localizationUtil) {
+    public GiveawayCommand(GiveawayService giveawayService, WinnerService winnerService, EntryBufferService entryBufferService,
+                           LocalizationUtil localizationUtil, GiveawayScheduler giveawayScheduler, MessageDispatcher messageDispatcher) {
         this.giveawayService = giveawayService;
         this.winnerService = winnerService;
+        this.entryBufferService = entryBufferService;
         this.localizationUtil = localizationUtil;
+        this.giveawayScheduler = giveawayScheduler;
+        this.messageDispatcher = messageDispatcher;
     }
 
     @Override
@@ -55,30 +80,68 @@ public class GiveawayCommand extends ListenerAdapter {
         if (event.getUser() != null && event.getUser().isBot()) {
             return; // Ignore bot reactions
         }
+        if (!ENTRY_EMOJI.equals(event.getEmoji())) {
+            return; // Only the 🎉 reaction enters the giveaway, so removing another reaction cannot withdraw the entry
+        }
 
+        long start = System.nanoTime();
         long messageId = event.getMessageIdLong();
-        GiveawayEntity giveaway = giveawayService.getGiveawayByMessageId(messageId);
+        Long giveawayId = entryBufferService.resolveGiveawayId(messageId);
 
-        if (giveaway != null) {
+        Timer timer;
+        if (giveawayId != null) {
             long userId = event.getUserIdLong();
-            if (!giveaway.getEntries().contains(userId)) {
-                giveaway.addEntry(userId);
-                giveawayService.updateGiveaway(giveaway);  // Update the giveaway with the new entry
-                LOGGER.info("User with ID {} entered the giveaway with title: {}", userId, giveaway.getTitle());
+            // The entry is only buffered here, it is written to the database in batches by the EntryBufferService
+            if (entryBufferService.addEntry(giveawayId, userId)) {
+                timer = enteredTimer;
+                LOGGER.info("User with ID {} entered the giveaway with ID: {}", userId, giveawayId);
             } else {
-                LOGGER.info("User with ID {} has already entered the giveaway with title: {}", userId, giveaway.getTitle());
+                timer = duplicateTimer;
+                LOGGER.info("User with ID {} has already entered the giveaway with ID: {}", userId, giveawayId);
             }
-
-            LOGGER.info("Entries for giveaway: {}", giveaway.getEntries());
         } else {
-            LOGGER.warn("Giveaway with message ID {} not found", messageId);
+            // A reaction on a message that is not an active giveaway, rejected without touching the database
+            timer = unknownGiveawayTimer;
         }
+        timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void onMessageReactionRemove(MessageReactionRemoveEvent event) {
+        // The user is usually not cached for removed reactions, the bot never removes its own reaction
+        if (event.getUser() != null && event.getUser().isBot()) {
+            return;
+        }
+        if (!ENTRY_EMOJI.equals(event.getEmoji())) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        long messageId = event.getMessageIdLong();
+        Long giveawayId = entryBufferService.resolveGiveawayId(messageId);
+        if (giveawayId == null) {
+            unknownGiveawayTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return;
+        }
+
+        long userId = event.getUserIdLong();
+        // Only buffered as well, an entry added and withdrawn before the next flush results in a single delete
+        entryBufferService.removeEntry(giveawayId, userId);
+        LOGGER.info("User with ID {} withdrew from the giveaway with ID: {}", userId, giveawayId);
+        withdrawnTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private static Timer reactionTimer(String result) {
+        return Timer.builder("giveaway.entries.reaction")
+                .tag("result", result)
+                .description("Time spent handling a reaction on a giveaway message")
+                .register(Metrics.globalRegistry);
     }
 
     public void handleCreateCommand(SlashCommandInteractionEvent event) {
         // Ensure the guildId is not null
         if (event.getGuild() == null) {
-            event.reply("This command can only be used in a server.").setEphemeral(true).queue();
+            ReplyUtil.reply(event, "This command can only be used in a server.", true);
             return;
         }
 
@@ -87,7 +150,7 @@ public class GiveawayCommand extends ListenerAdapter {
         // Ensure the user has the ADMINISTRATOR permission
         if (event.getMember() == null || !event.getMember().hasPermission(net.dv8tion.jda.api.Permission.ADMINISTRATOR)) {
             LOGGER.warn("User {} does not have permission to use the giveaway command", event.getUser());
-            event.reply(localizationUtil.getLocalizedMessage(guildId, "no_permission")).setEphemeral(true).queue();
+            ReplyUtil.reply(event, localizationUtil.getLocalizedMessage(guildId, "no_permission"), true);
             return;
         }
 
@@ -119,14 +182,14 @@ public class GiveawayCommand extends ListenerAdapter {
 
         // Ensure all required options are present
         if (title == null || prize == null || durationStr == null || numberOfWinners == null) {
-            event.reply(localizationUtil.getLocalizedMessage(guildId, "missing_required_options")).setEphemeral(true).queue();
+            ReplyUtil.reply(event, localizationUtil.getLocalizedMessage(guildId, "missing_required_options"), true);
             LOGGER.warn("User {} did not provide all required options for the giveaway. Creation failed!", event.getUser());
             return;
         }
 
         // Check if a giveaway with the same title already exists. Titles are unique so we can use them as identifiers
         if (giveawayService.getGiveawayByTitleAndGuildId(title, guildId) != null) {
-            event.reply(localizationUtil.getLocalizedMessage(guildId, "giveaway_exists")).setEphemeral(true).queue();
+            ReplyUtil.reply(event, localizationUtil.getLocalizedMessage(guildId, "giveaway_exists"), true);
             LOGGER.warn("Giveaway with title {} already exists. Creation failed!", title);
             return;
         }
@@ -134,30 +197,46 @@ public class GiveawayCommand extends ListenerAdapter {
         // Calculate end time
         long durationMillis = DurationParser.parseDuration(durationStr);
         if (durationMillis == 0) {
-            event.reply(localizationUtil.getLocalizedMessage(guildId, "invalid_duration_option")).setEphemeral(true).queue();
+            ReplyUtil.reply(event, localizationUtil.getLocalizedMessage(guildId, "invalid_duration_option"), true);
             LOGGER.warn("User {} provided an invalid duration for the giveaway. Creation failed!", event.getUser());
             return;
         }
         Instant endTime = Instant.now().plusMillis(durationMillis);
 
+        // Optional reminder schedule, stored normalized with the giveaway
+        final String remindersStr = Optional.ofNullable(event.getOption("reminders"))
+                .map(OptionMapping::getAsString)
+                .orElse(null);
+        final ReminderSchedule reminderSchedule = remindersStr != null ? ReminderSchedule.parse(remindersStr) : null;
+        if (remindersStr != null && reminderSchedule == null) {
+            ReplyUtil.reply(event, localizationUtil.getLocalizedMessage(guildId, "invalid_reminders_option"), true);
+            LOGGER.warn("User {} provided an invalid reminder schedule for the giveaway. Creation failed!", event.getUser());
+            return;
+        }
+
         // Create the giveaway embed
         EmbedBuilder embedBuilder = EmbedUtil.createGiveawayEmbed(title, prize, durationStr, numberOfWinners, endTime, guildId, localizationUtil);
 
-        GiveawayUtil giveawayUtil = new GiveawayUtil(localizationUtil);
+        GiveawayUtil giveawayUtil = new GiveawayUtil(localizationUtil, giveawayScheduler, messageDispatcher);
 
         textChannel.sendMessageEmbeds(embedBuilder.build()).queue(message -> {
-            message.addReaction(Emoji.fromUnicode("🎉")).queue();
+            message.addReaction(ENTRY_EMOJI).queue();
             GiveawayEntity giveaway = new GiveawayEntity(message.getIdLong(), title, prize, numberOfWinners, durationMillis, textChannel.getIdLong(), guildId);
             giveaway.setPrize(prize);
-            giveawayService.createGiveaway(giveaway);
+            giveaway.setReminderSchedule(reminderSchedule != null ? reminderSchedule.toString() : null);
+
+            // Called on a JDA thread, the database work runs on the scheduler workers
+            giveawayScheduler.execute("creation of giveaway " + title, () -> {
+                giveawayService.createGiveaway(giveaway);
 
-            LOGGER.info("Giveaway created: {} in guild {}", giveaway, guildId);
+                LOGGER.info("Giveaway created: {} in guild {}", giveaway, guildId);
 
-            // Schedule the giveaway end
-            giveawayUtil.scheduleGiveawayEnd(giveaway, message.getJDA(), giveawayService, winnerService, durationMillis);
+                // Schedule the giveaway end
+                giveawayUtil.scheduleGiveawayEnd(giveaway, message.getJDA().getShardManager(), giveawayService, winnerService, durationMillis);
+            });
         });
 
-        event.reply(localizationUtil.getLocalizedMessage(guildId, "giveaway_created_success")).setEphemeral(true).queue();
+        ReplyUtil.reply(event, localizationUtil.getLocalizedMessage(guildId, "giveaway_created_success"), true);
         LOGGER.info("Giveaway created with title: {}, duration: {}, and winners: {}", title, durationStr, numberOfWinners);
     }
 }
\ No newline at end of file
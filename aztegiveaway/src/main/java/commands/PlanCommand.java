@@ -14,6 +14,7 @@ import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEve
 import net.dv8tion.jda.api.interactions.commands.OptionMapping;
 
 import org.example.entities.GiveawayEntity;
+import org.example.entities.GiveawayStatus;
 import org.example.services.GiveawayService;
 import org.example.services.WinnerService;
 
@@ -25,14 +26,16 @@ import org.springframework.stereotype.Component;
 
 import org.example.utils.DurationParser;
 import org.example.utils.EmbedUtil;
+import org.example.utils.GiveawayScheduler;
 import org.example.utils.GiveawayUtil;
 import org.example.utils.LocalizationUtil;
+import org.example.utils.MessageDispatcher;
+import org.example.utils.ReminderSchedule;
+import org.example.utils.ReplyUtil;
 
 import java.time.Instant;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.Timer;
-import java.util.TimerTask;
 
 @Component
 public class PlanCommand {
@@ -42,18 +45,22 @@ public class PlanCommand {
     private final GiveawayService giveawayService;
     private final WinnerService winnerService;
     private final LocalizationUtil localizationUtil;
+    private final GiveawayScheduler giveawayScheduler;
+    private final MessageDispatcher messageDispatcher;
 
     @Autowired
-    public PlanCommand(GiveawayService giveawayService, WinnerService winnerService, LocalizationUtil localizationUtil) {
+    public PlanCommand(GiveawayService giveawayService, WinnerService winnerService, LocalizationUtil localizationUtil, GiveawayScheduler giveawayScheduler, MessageDispatcher messageDispatcher) {
         this.giveawayService = giveawayService;
         this.winnerService = winnerService;
         this.localizationUtil = localizationUtil;
+        this.giveawayScheduler = giveawayScheduler;
+        this.messageDispatcher = messageDispatcher;
     }
 
     public void handlePlanCommand(SlashCommandInteractionEvent event) {
         // Ensure the guild is not null
         if (event.getGuild() == null) {
-            event.reply("This command can only be used in a server.").setEphemeral(true).queue();
+            ReplyUtil.reply(event, "This command can only be used in a server.", true);
             return;
         }
 
@@ -62,7 +69,7 @@ public class PlanCommand {
         // Ensure the user has the ADMINISTRATOR permission
         if (event.getMember() == null || !event.getMember().hasPermission(net.dv8tion.jda.api.Permission.ADMINISTRATOR)) {
             LOGGER.warn("User {} does not have permission to use the giveaway command", event.getUser());
-            event.reply(localizationUtil.getLocalizedMessage(guildId, "no_permission")).setEphemeral(true).queue();
+            ReplyUtil.reply(event, localizationUtil.getLocalizedMessage(guildId, "no_permission"), true);
             return;
         }
 
@@ -98,12 +105,12 @@ public class PlanCommand {
 
         // Ensure all required options are present
         if (title == null || prize == null || startTimeStr == null || durationStr == null || numberOfWinners == null) {
-            event.reply(localizationUtil.getLocalizedMessage(guildId, "missing_required_options_plan")).setEphemeral(true).queue();
+            ReplyUtil.reply(event, localizationUtil.getLocalizedMessage(guildId, "missing_required_options_plan"), true);
             return;
         }
 
         if (giveawayService.getGiveawayByTitleAndGuildId(title, guildId) != null) {
-            event.reply(localizationUtil.getLocalizedMessage(guildId, "giveaway_exists")).setEphemeral(true).queue();
+            ReplyUtil.reply(event, localizationUtil.getLocalizedMessage(guildId, "giveaway_exists"), true);
             LOGGER.warn("Giveaway with title {} already exists. Creation failed!", title);
             return;
         }
@@ -112,12 +119,23 @@ public class PlanCommand {
         long startTimeMillis = DurationParser.parseDuration(startTimeStr);
         long durationMillis = DurationParser.parseDuration(durationStr);
         if (startTimeMillis == 0 || durationMillis == 0) {
-            event.reply(localizationUtil.getLocalizedMessage(guildId, "invalid_duration_option")).setEphemeral(true).queue();
+            ReplyUtil.reply(event, localizationUtil.getLocalizedMessage(guildId, "invalid_duration_option"), true);
             return;
         }
 
         Instant startTime = Instant.now().plusMillis(startTimeMillis);
 
+        // Optional reminder schedule, stored normalized with the giveaway
+        final String remindersStr = Optional.ofNullable(event.getOption("reminders"))
+                .map(OptionMapping::getAsString)
+                .orElse(null);
+        final ReminderSchedule reminderSchedule = remindersStr != null ? ReminderSchedule.parse(remindersStr) : null;
+        if (remindersStr != null && reminderSchedule == null) {
+            ReplyUtil.reply(event, localizationUtil.getLocalizedMessage(guildId, "invalid_reminders_option"), true);
+            LOGGER.warn("User {} provided an invalid reminder schedule for the giveaway. Creation failed!", event.getUser());
+            return;
+        }
+
         // Create and save a new GiveawayEntity with messageId set to 0L initially
         GiveawayEntity giveaway = new GiveawayEntity();
         giveaway.setTitle(title);
@@ -126,17 +144,18 @@ public class PlanCommand {
         giveaway.setDuration(durationMillis);
         giveaway.setNumberOfWinners(numberOfWinners);
         giveaway.setChannelId(textChannel.getIdLong());
-        giveaway.setMessageId(0L);
         giveaway.setGuildId(guildId);
+        giveaway.setStatus(GiveawayStatus.PLANNED);
+        giveaway.setReminderSchedule(reminderSchedule != null ? reminderSchedule.toString() : null);
 
         // Save the giveaway to the database so that no other giveaway with the same title can be created before this one is started
         giveawayService.createGiveaway(giveaway);
-        GiveawayUtil giveawayUtil = new GiveawayUtil(localizationUtil);
+        GiveawayUtil giveawayUtil = new GiveawayUtil(localizationUtil, giveawayScheduler, messageDispatcher);
 
-        // Schedule the task
-        new Timer().schedule(new TimerTask() {
-            @Override
-            public void run() {
+        // Schedule the start on the shared scheduler (keyed by the giveaway ID as there is no message yet)
+        // Only the instance owning the lease schedules it, the lease of a new giveaway is always free
+        if (giveawayService.acquireLease(giveaway)) {
+            giveawayScheduler.schedule(GiveawayScheduler.TaskType.PLANNED_START, giveaway.getId(), startTimeMillis, () -> {
                 EmbedBuilder embedBuilder =
                         EmbedUtil.createGiveawayEmbed(
                                 title,
@@ -151,13 +170,23 @@ public class PlanCommand {
                 textChannel.sendMessageEmbeds(embedBuilder.build()).queue(message -> {
                     message.addReaction(Emoji.fromUnicode("🎉")).queue();
                     giveaway.setMessageId(message.getIdLong());
-                    giveawayService.updateGiveaway(giveaway);
-                    giveawayUtil.scheduleGiveawayEnd(giveaway, message.getJDA(), giveawayService, winnerService, durationMillis);
+                    giveaway.setStatus(GiveawayStatus.ACTIVE);
+                    // Called on a JDA thread, the database work runs on the scheduler workers
+                    giveawayScheduler.execute("start of giveaway " + title, () -> {
+                        if (!giveawayService.updateGiveaway(giveaway)) {
+                            // The giveaway was deleted or changed meanwhile, the message would never end
+                            message.delete().queue();
+                            return;
+                        }
+                        giveawayUtil.scheduleGiveawayEnd(giveaway, message.getJDA().getShardManager(), giveawayService, winnerService, durationMillis);
+                    });
                 });
-            }
-        }, startTimeMillis);
+            });
+        } else {
+            LOGGER.warn("Could not acquire the lease of planned giveaway {}, another instance will start it.", title);
+        }
 
-        event.reply(localizationUtil.getLocalizedMessage(guildId, "giveaway_scheduled_success")).setEphemeral(true).queue();
+        ReplyUtil.reply(event, localizationUtil.getLocalizedMessage(guildId, "giveaway_scheduled_success"), true);
         LOGGER.info("Giveaway scheduled with title: {}, start time: {}, duration: {}, and winners: {}", title, startTimeStr, durationStr, numberOfWinners);
     }
 }
\ No newline at end of file
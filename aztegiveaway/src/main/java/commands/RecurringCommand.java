@@ -0,0 +1,155 @@
+/**
+ * Class that handles the /recurring command.
+ * This command is used to create a giveaway that starts again and again following a cron expression, e.g. every Monday at 18:00.
+ * Only the template is stored, every instance is created as a planned giveaway when its time has come (see RecurringGiveawayScheduler).
+ * Only users with the ADMINISTRATOR permission can use this command.
+ * USAGE: /giveaway recurring --title "title" --prize "prize" --schedule "0 18 * * MON" --duration "1h" --winners 1 [--timezone "Europe/Bucharest"] [--channel #channel] [--reminders "90%"]
+ * The template is deleted with /giveaway delete and its title.
+ */
+
+package commands;
+
+import org.example.entities.RecurringGiveawayEntity;
+import org.example.services.GiveawayService;
+import org.example.services.RecurringGiveawayService;
+
+import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import net.dv8tion.jda.api.interactions.commands.OptionMapping;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import org.example.utils.DurationParser;
+import org.example.utils.LocalizationUtil;
+import org.example.utils.RecurringGiveawayScheduler;
+import org.example.utils.ReminderSchedule;
+import org.example.utils.ReplyUtil;
+
+import java.text.MessageFormat;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Objects;
+import java.util.Optional;
+
+@Component
+public class RecurringCommand extends ListenerAdapter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RecurringCommand.class);
+    private static final int MAX_TITLE_LENGTH = 90; // leaves room for the " #<n>" of the instances
+
+    private final GiveawayService giveawayService;
+    private final RecurringGiveawayService recurringGiveawayService;
+    private final RecurringGiveawayScheduler recurringGiveawayScheduler;
+    private final LocalizationUtil localizationUtil;
+
+    @Autowired
+    public RecurringCommand(GiveawayService giveawayService, RecurringGiveawayService recurringGiveawayService,
+                            RecurringGiveawayScheduler recurringGiveawayScheduler, LocalizationUtil localizationUtil) {
+        this.giveawayService = giveawayService;
+        this.recurringGiveawayService = recurringGiveawayService;
+        this.recurringGiveawayScheduler = recurringGiveawayScheduler;
+        this.localizationUtil = localizationUtil;
+    }
+
+    public void handleRecurringCommand(SlashCommandInteractionEvent event) {
+        // Ensure the guild is not null
+        if (event.getGuild() == null) {
+            ReplyUtil.reply(event, "This command can only be used in a server.", true);
+            return;
+        }
+
+        Long guildId = event.getGuild().getIdLong();
+
+        // Ensure the user has the ADMINISTRATOR permission
+        if (event.getMember() == null || !event.getMember().hasPermission(net.dv8tion.jda.api.Permission.ADMINISTRATOR)) {
+            LOGGER.warn("User {} does not have permission to use the giveaway command", event.getUser());
+            ReplyUtil.reply(event, localizationUtil.getLocalizedMessage(guildId, "no_permission"), true);
+            return;
+        }
+
+        // Get the options and check if null
+        final String title = getString(event, "title");
+        final String prize = getString(event, "prize");
+        final String scheduleStr = getString(event, "schedule");
+        final String durationStr = getString(event, "duration");
+        final String timezoneStr = Optional.ofNullable(getString(event, "timezone")).orElse("UTC");
+        final String remindersStr = getString(event, "reminders");
+        final Integer numberOfWinners = Optional.ofNullable(event.getOption("winners"))
+                .map(OptionMapping::getAsInt)
+                .orElse(null);
+
+        // Get the channel option if present, otherwise use the current channel
+        final TextChannel textChannel;
+        if (event.getOption("channel") != null) {
+            textChannel = Objects.requireNonNull(event.getOption("channel")).getAsChannel().asTextChannel();
+        } else {
+            textChannel = (TextChannel) event.getChannel();
+        }
+
+        // Ensure all required options are present
+        if (title == null || prize == null || scheduleStr == null || durationStr == null || numberOfWinners == null) {
+            ReplyUtil.reply(event, localizationUtil.getLocalizedMessage(guildId, "missing_required_options_recurring"), true);
+            return;
+        }
+
+        if (title.length() > MAX_TITLE_LENGTH || recurringGiveawayService.getTemplateByTitleAndGuildId(title, guildId) != null
+                || giveawayService.getGiveawayByTitleAndGuildId(title, guildId) != null) {
+            ReplyUtil.reply(event, localizationUtil.getLocalizedMessage(guildId, "giveaway_exists"), true);
+            LOGGER.warn("Recurring giveaway with title {} already exists. Creation failed!", title);
+            return;
+        }
+
+        long durationMillis = DurationParser.parseDuration(durationStr);
+        if (durationMillis == 0) {
+            ReplyUtil.reply(event, localizationUtil.getLocalizedMessage(guildId, "invalid_duration_option"), true);
+            return;
+        }
+
+        final String cron = RecurringGiveawayService.normalizeCron(scheduleStr);
+        final ZoneId zone = RecurringGiveawayService.parseZone(timezoneStr);
+        final Instant firstFireTime = cron != null && zone != null
+                ? RecurringGiveawayService.nextFireTime(cron, zone.getId(), Instant.now())
+                : null;
+        if (firstFireTime == null) {
+            ReplyUtil.reply(event, localizationUtil.getLocalizedMessage(guildId, "invalid_schedule_option"), true);
+            LOGGER.warn("User {} provided an invalid schedule {} ({}) for the recurring giveaway. Creation failed!", event.getUser(), scheduleStr, timezoneStr);
+            return;
+        }
+
+        final ReminderSchedule reminderSchedule = remindersStr != null ? ReminderSchedule.parse(remindersStr) : null;
+        if (remindersStr != null && reminderSchedule == null) {
+            ReplyUtil.reply(event, localizationUtil.getLocalizedMessage(guildId, "invalid_reminders_option"), true);
+            return;
+        }
+
+        RecurringGiveawayEntity template = new RecurringGiveawayEntity();
+        template.setTitle(title);
+        template.setPrize(prize);
+        template.setNumberOfWinners(numberOfWinners);
+        template.setDuration(durationMillis);
+        template.setChannelId(textChannel.getIdLong());
+        template.setGuildId(guildId);
+        template.setReminderSchedule(reminderSchedule != null ? reminderSchedule.toString() : null);
+        template.setCron(cron);
+        template.setZone(zone.getId());
+        template.setNextFireTime(firstFireTime);
+        recurringGiveawayService.createTemplate(template);
+        recurringGiveawayScheduler.rearm();
+
+        // Discord shows the time in the time zone of the reader
+        ReplyUtil.reply(event, MessageFormat.format(localizationUtil.getLocalizedMessage(guildId, "recurring_scheduled_success"),
+                title, "<t:" + firstFireTime.getEpochSecond() + ":F>"), true);
+        LOGGER.info("Recurring giveaway scheduled with title: {}, schedule: {} ({}), duration: {}, and winners: {}", title, cron, zone, durationStr, numberOfWinners);
+    }
+
+    private static String getString(SlashCommandInteractionEvent event, String name) {
+        return Optional.ofNullable(event.getOption(name))
+                .map(OptionMapping::getAsString)
+                .orElse(null);
+    }
+}
@@ -25,14 +25,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import jakarta.transaction.Transactional;
 
-import org.example.utils.FairRandomizer;
+import org.example.utils.EntrySet;
 import org.example.utils.LocalizationUtil;
+import org.example.utils.ReplyUtil;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
-import java.util.Set;
-import java.util.stream.Collectors;
 
 @Component
 public class RerollCommand {
@@ -53,7 +53,7 @@ public class RerollCommand {
     public void handleRerollCommand(SlashCommandInteractionEvent event) {
         // Ensure the guild is not null
         if (event.getGuild() == null) {
-            event.reply("This command can only be used in a server.").setEphemeral(true).queue();
+            ReplyUtil.reply(event, "This command can only be used in a server.", true);
             return;
         }
 
@@ -62,7 +62,7 @@ public class RerollCommand {
 
         // Ensure the user has the ADMINISTRATOR permission
         if (event.getMember() == null || !event.getMember().hasPermission(net.dv8tion.jda.api.Permission.ADMINISTRATOR)) {
-            event.reply(localizationUtil.getLocalizedMessage(guildId, "no_permission")).setEphemeral(true).queue();
+            ReplyUtil.reply(event, localizationUtil.getLocalizedMessage(guildId, "no_permission"), true);
             LOGGER.warn("User {} does not have permission to use the reroll command", event.getUser());
             return;
         }
@@ -79,14 +79,14 @@ public class RerollCommand {
 
         // Check if the title is null
         if (title == null) {
-            event.reply(localizationUtil.getLocalizedMessage(guildId, "missing_required_options_reroll")).setEphemeral(true).queue();
+            ReplyUtil.reply(event, localizationUtil.getLocalizedMessage(guildId, "missing_required_options_reroll"), true);
             return;
         }
 
-        // Retrieve the giveaway by title and initialize entries
+        // Retrieve the giveaway by title
         GiveawayEntity giveaway = giveawayService.getGiveawayByTitleAndGuildId(title, guildId);
         if (giveaway == null) {
-            event.reply(localizationUtil.getLocalizedMessage(guildId, "no_giveaway_found") + ": " + title).setEphemeral(true).queue();
+            ReplyUtil.reply(event, localizationUtil.getLocalizedMessage(guildId, "no_giveaway_found") + ": " + title, true);
             LOGGER.warn("Giveaway with title {} not found", title);
             return;
         }
@@ -96,32 +96,32 @@ public class RerollCommand {
 
         // Retrieving previous winners to exclude them from the new draw
         List<WinnerEntity> previousWinners = winnerService.getWinnersByGiveawayMessageIdAndGuildId(giveaway.getMessageId(), guildId);
-        Set<Long> previousWinnerIds = previousWinners.stream()
+        EntrySet previousWinnerIds = EntrySet.of(previousWinners.stream()
                 .map(WinnerEntity::getUserId)
-                .collect(Collectors.toSet());
+                .toList());
 
-        // Filtering out previous winners from the entries
-        List<Long> eligibleEntries = giveawayService.getGiveawayEntries(giveaway.getId()).stream()
-                .filter(entry -> !previousWinnerIds.contains(entry))
-                .collect(Collectors.toList());
+        // Make sure the buffered entries are persisted before reading them
+        giveawayService.flushPendingEntries(giveaway.getId());
+
+        // Drawing among the entries that did not win before. The eligible entries are never copied,
+        // the previous winners are skipped by their position in the sorted entries
+        long[] drawn = giveawayService.getGiveawayEntries(giveaway.getId()).drawExcluding(winnersCount, previousWinnerIds);
+        boolean hasEligibleEntries = drawn.length > 0;
 
         // Check if there are any eligible entries left
         List<Long> winners;
-        if (eligibleEntries.isEmpty()) {
+        if (!hasEligibleEntries) {
             // If there are no eligible entries, keep the previous winners as the new winners
-            winners = new ArrayList<>(previousWinnerIds);
+            winners = previousWinnerIds.toList();
             LOGGER.info("No eligible entries found. Keeping the previous winners as the new winners.");
-            event.reply(localizationUtil.getLocalizedMessage(guildId, "no_eligible_entries")).queue();
-        } else if (eligibleEntries.size() <= winnersCount) {
-            // If the number of eligible entries is smaller than the number of winners, make them the new winners
-            winners = eligibleEntries;
+            ReplyUtil.reply(event, localizationUtil.getLocalizedMessage(guildId, "no_eligible_entries"), false);
         } else {
-            // Otherwise, randomly select new winners
-            winners = FairRandomizer.selectWinners(eligibleEntries, winnersCount);
+            // Every eligible entry wins if there are not more of them than winners
+            winners = Arrays.stream(drawn).boxed().toList();
         }
 
         // Deleting previous winners if there are new eligible entries
-        if (!eligibleEntries.isEmpty()) {
+        if (hasEligibleEntries) {
             LOGGER.info("Deleting previous winners for giveaway {}", giveaway.getTitle());
             winnerService.deleteWinnersByGiveawayMessageIdAndGuildId(giveaway.getMessageId(), guildId);
         }
@@ -129,12 +129,14 @@ public class RerollCommand {
 
         // Announcing the new winners
         StringBuilder winnerMessage = new StringBuilder(localizationUtil.getLocalizedMessage(guildId, "reroll_success").replace("{0}", giveaway.getTitle()) + '\n');
+        List<WinnerEntity> winnerEntities = new ArrayList<>(winners.size());
         for (Long winnerId : winners) {
             winnerMessage.append("<@").append(winnerId).append(">\n");
-            winnerService.addWinner(new WinnerEntity(giveaway.getTitle(), giveaway.getMessageId(), winnerId, guildId));
+            winnerEntities.add(new WinnerEntity(giveaway.getTitle(), giveaway.getMessageId(), winnerId, guildId));
         }
+        winnerService.addWinners(winnerEntities);
 
-        event.reply(winnerMessage.toString()).queue(); // here is the actual command that makes the announcement that appears in the channel
+        ReplyUtil.reply(event, winnerMessage.toString(), false); // here is the actual command that makes the announcement that appears in the channel
         LOGGER.info("Reroll for giveaway {} has ended!", giveaway.getTitle());
     }
 }
\ No newline at end of file
@@ -8,6 +8,7 @@
 package commands;
 
 import org.example.entities.GiveawayEntity;
+import org.example.entities.GiveawayStatus;
 import org.example.services.GiveawayService;
 import org.example.services.WinnerService;
 
@@ -21,8 +22,11 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import org.example.utils.GiveawayScheduler;
 import org.example.utils.GiveawayUtil;
 import org.example.utils.LocalizationUtil;
+import org.example.utils.MessageDispatcher;
+import org.example.utils.ReplyUtil;
 
 import jakarta.transaction.Transactional;
 import java.util.Optional;
@@ -35,19 +39,23 @@ public class RollCommand extends ListenerAdapter {
     private final GiveawayService giveawayService;
     private final WinnerService winnerService;
     private final LocalizationUtil localizationUtil;
+    private final GiveawayScheduler giveawayScheduler;
+    private final MessageDispatcher messageDispatcher;
 
     @Autowired
-    public RollCommand(GiveawayService giveawayService, WinnerService winnerService, LocalizationUtil localizationUtil) {
+    public RollCommand(GiveawayService giveawayService, WinnerService winnerService, LocalizationUtil localizationUtil, GiveawayScheduler giveawayScheduler, MessageDispatcher messageDispatcher) {
         this.giveawayService = giveawayService;
         this.winnerService = winnerService;
         this.localizationUtil = localizationUtil;
+        this.giveawayScheduler = giveawayScheduler;
+        this.messageDispatcher = messageDispatcher;
     }
 
     @Transactional // Using this annotation to ensure that all db operations are done in a single transaction
     public void handleRollCommand(SlashCommandInteractionEvent event) {
         // Ensure the guild is not null
         if (event.getGuild() == null) {
-            event.reply("This command can only be used in a server.").setEphemeral(true).queue();
+            ReplyUtil.reply(event, "This command can only be used in a server.", true);
             return;
         }
 
@@ -56,7 +64,7 @@ public class RollCommand extends ListenerAdapter {
 
         // Ensure the user has the ADMINISTRATOR permission
         if (event.getMember() == null || !event.getMember().hasPermission(net.dv8tion.jda.api.Permission.ADMINISTRATOR)) {
-            event.reply(localizationUtil.getLocalizedMessage(guildId, "no_permission")).setEphemeral(true).queue();
+            ReplyUtil.reply(event, localizationUtil.getLocalizedMessage(guildId, "no_permission"), true);
             LOGGER.warn("User {} does not have permission to use the roll command", event.getUser());
             return;
         }
@@ -68,32 +76,35 @@ public class RollCommand extends ListenerAdapter {
 
         // Check if the title is null
         if (title == null) {
-            event.reply(localizationUtil.getLocalizedMessage(guildId, "missing_title")).setEphemeral(true).queue();
+            ReplyUtil.reply(event, localizationUtil.getLocalizedMessage(guildId, "missing_title"), true);
             LOGGER.warn("User {} did not provide a title for the giveaway. Rolling failed", event.getUser());
             return;
         }
 
-        // Retrieve the giveaway by title and initialize entries
+        // Retrieve the giveaway by title
         GiveawayEntity giveaway = giveawayService.getGiveawayByTitleAndGuildId(title, guildId);
         if (giveaway == null) {
-            event.reply(localizationUtil.getLocalizedMessage(guildId, "no_giveaway_found") + ": " + title).setEphemeral(true).queue();
+            ReplyUtil.reply(event, localizationUtil.getLocalizedMessage(guildId, "no_giveaway_found") + ": " + title, true);
             LOGGER.warn("Giveaway with title {} not found in the database", title);
             return;
         }
 
-        // Cancel the scheduled end of the giveaway if it hasn't ended yet
-        boolean isEnded = GiveawayUtil.cancelScheduledGiveawayEnd(giveaway);
-        if (!isEnded) {
-            event.reply(localizationUtil.getLocalizedMessage(guildId, "giveaway_already_ended").replace("{0}", title)).queue();
+        GiveawayUtil giveawayUtil = new GiveawayUtil(localizationUtil, giveawayScheduler, messageDispatcher);
+
+        // The end may be scheduled on another instance, so the status tells whether the giveaway can still be rolled
+        if (giveaway.getStatus() != null && giveaway.getStatus() != GiveawayStatus.ACTIVE) {
+            ReplyUtil.reply(event, localizationUtil.getLocalizedMessage(guildId, "giveaway_already_ended").replace("{0}", title), false);
             return;
         }
 
+        // Cancel the scheduled end of the giveaway if it is scheduled here, the draw itself can only happen once
+        giveawayUtil.cancelScheduledGiveawayEnd(giveaway);
+
         giveaway = giveawayService.getGiveawayByTitleAndGuildId(title, guildId); // Retrieve the giveaway again to ensure it's up-to-date
-        GiveawayUtil giveawayUtil = new GiveawayUtil(localizationUtil);
         // Roll the giveaway immediately
-        giveawayUtil.endGiveaway(giveaway, event.getJDA(), giveaway.getMessageId(), giveawayService, winnerService);
+        giveawayUtil.endGiveaway(giveaway, event.getJDA().getShardManager(), giveaway.getMessageId(), giveawayService, winnerService);
 
-        event.reply(localizationUtil.getLocalizedMessage(guildId, "giveaway_rolled_success").replace("{0}", title)).queue();
+        ReplyUtil.reply(event, localizationUtil.getLocalizedMessage(guildId, "giveaway_rolled_success").replace("{0}", title), false);
         LOGGER.info("Giveaway {} has been rolled immediately.", title);
     }
 }
\ No newline at end of file
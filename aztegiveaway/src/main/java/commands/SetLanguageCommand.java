@@ -19,6 +19,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import org.example.utils.LocalizationUtil;
+import org.example.utils.ReplyUtil;
 
 import java.util.Objects;
 
@@ -37,7 +38,7 @@ public class SetLanguageCommand {
     public void handleSetLanguageCommand(SlashCommandInteractionEvent event) {
         // Ensure the guild is not null
         if (event.getGuild() == null) {
-            event.reply("This command can only be used in a server.").setEphemeral(true).queue();
+            ReplyUtil.reply(event, "This command can only be used in a server.", true);
             return;
         }
 
@@ -46,18 +47,19 @@ public class SetLanguageCommand {
         // Ensure the user has the ADMINISTRATOR permission
         if (event.getMember() == null || !event.getMember().hasPermission(net.dv8tion.jda.api.Permission.ADMINISTRATOR)) {
             LOGGER.warn("User {} does not have permission to use the set language command", event.getUser());
-            event.reply(localizationUtil.getLocalizedMessage(guildId, "no_permission")).setEphemeral(true).queue();
+            ReplyUtil.reply(event, localizationUtil.getLocalizedMessage(guildId, "no_permission"), true);
             return;
         }
 
         String language = Objects.requireNonNull(event.getOption("language")).getAsString();
         if (!language.equals("en") && !language.equals("ro")) {
-            event.reply(localizationUtil.getLocalizedMessage(guildId, "invalid_language_option")).setEphemeral(true).queue();
+            ReplyUtil.reply(event, localizationUtil.getLocalizedMessage(guildId, "invalid_language_option"), true);
             return;
         }
 
         languagePreferenceService.setLanguagePreference(guildId, language);
-        event.reply(localizationUtil.getLocalizedMessage(guildId, "language_set_success").replace("{0}", language)).queue();
+        localizationUtil.invalidateLocale(guildId); // the cached locale of the guild is outdated now
+        ReplyUtil.reply(event, localizationUtil.getLocalizedMessage(guildId, "language_set_success").replace("{0}", language), false);
         LOGGER.info("Language preference set to {} for guild {}", language, guildId);
     }
 }
\ No newline at end of file
@@ -2,6 +2,7 @@
  * Class that handles the slash commands
  * Listener for slash commands
  * This class is responsible for handling the slash commands and routing them to the appropriate command handler
+ * The handlers are not run on the JDA event thread: the reply is deferred and the handler runs on the CommandExecutor.
  */
 
 package commands;
@@ -15,10 +16,12 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import org.example.utils.CommandExecutor;
 import org.example.utils.LocalizationUtil;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Consumer;
 
 @Component
@@ -29,6 +32,10 @@ public class SlashCommandListener extends ListenerAdapter {
     private final Map<String, Consumer<SlashCommandInteractionEvent>> commandHandlers = new HashMap<>();
     private final Map<String, Consumer<SlashCommandInteractionEvent>> setCommandHandlers = new HashMap<>();
     private final LocalizationUtil localizationUtil;
+    private final CommandExecutor commandExecutor;
+
+    // Subcommands whose deferred reply is only visible to the user, the others answer publicly when they succeed
+    private static final Set<String> EPHEMERAL_SUBCOMMANDS = Set.of("create", "delete", "plan", "recurring");
 
     @Autowired
     public SlashCommandListener(GiveawayCommand giveawayCommand,
@@ -37,10 +44,13 @@ public class SlashCommandListener extends ListenerAdapter {
                                 DeleteCommand deleteCommand,
                                 WinnersCommand winnersCommand,
                                 PlanCommand planCommand,
+                                RecurringCommand recurringCommand,
                                 SetLanguageCommand setLanguageCommand,
-                                LocalizationUtil localizationUtil) {
+                                LocalizationUtil localizationUtil,
+                                CommandExecutor commandExecutor) {
 
         this.localizationUtil = localizationUtil;
+        this.commandExecutor = commandExecutor;
 
         // Initialize command handlers
         commandHandlers.put("create", event -> {
@@ -67,6 +77,10 @@ public class SlashCommandListener extends ListenerAdapter {
             LOGGER.info("Set plan command");
             planCommand.handlePlanCommand(event);
         });
+        commandHandlers.put("recurring", event -> {
+            LOGGER.info("Set recurring command");
+            recurringCommand.handleRecurringCommand(event);
+        });
 
         // Initialize set command handlers
         setCommandHandlers.put("language", event -> {
@@ -105,7 +119,7 @@ public class SlashCommandListener extends ListenerAdapter {
         Consumer<SlashCommandInteractionEvent> handler = handlers.get(subcommandName);
         if (handler != null) {
             LOGGER.info("Received subcommand: {}", subcommandName);
-            handler.accept(event);
+            commandExecutor.execute(event, subcommandName, EPHEMERAL_SUBCOMMANDS.contains(subcommandName), handler);
         } else {
             event.reply(localizationUtil.getLocalizedMessage(guildId, "unknown_subcommand").replace("{0}", subcommandName)).setEphemeral(true).queue();
         }
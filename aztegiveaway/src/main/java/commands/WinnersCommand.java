@@ -4,23 +4,20 @@
  * Only users with the ADMINISTRATOR permission can use this command.
  * USAGE: /giveaway winners [--giveaway_title "title"] [--giveaway_message_id "messageId"]
  * If no giveaway title or message ID is provided, all winners for the guild will be retrieved.
+ * All winners are shown in pages navigated with buttons. Pages are read from the database on demand (keyset pagination),
+ * only the position of the current page is kept in memory, in a session of the PaginationRouter.
  */
 
 package commands;
 
-import net.dv8tion.jda.api.EmbedBuilder;
-import net.dv8tion.jda.api.entities.Message;
-import net.dv8tion.jda.api.entities.emoji.Emoji;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
-import net.dv8tion.jda.api.events.message.react.MessageReactionAddEvent;
-import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import net.dv8tion.jda.api.events.interaction.component.ButtonInteractionEvent;
 import net.dv8tion.jda.api.interactions.commands.OptionMapping;
+import net.dv8tion.jda.api.interactions.components.ActionRow;
 
 import org.example.entities.WinnerEntity;
 import org.example.services.WinnerService;
 
-import org.jetbrains.annotations.NotNull;
-
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -29,29 +26,36 @@ import org.springframework.stereotype.Component;
 
 import org.example.utils.EmbedUtil;
 import org.example.utils.LocalizationUtil;
+import org.example.utils.PaginationRouter;
+import org.example.utils.ReplyUtil;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
 @Component
-public class WinnersCommand extends ListenerAdapter { // it is not necessary to extend ListenerAdapter for pagination (see below)
+public class WinnersCommand {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(WinnersCommand.class);
     private final WinnerService winnerService;
     private final LocalizationUtil localizationUtil;
+    private final PaginationRouter paginationRouter;
     private static final int NUMBER_OF_WINNERS_PER_PAGE = 5; // change the number of winners per page here
 
+    // Position of the page currently shown by a message: the IDs of its first and last winner
+    private record WinnersPage(Long guildId, long firstId, long lastId, int pageIndex, int totalPages) {}
+
     @Autowired
-    public WinnersCommand(WinnerService winnerService, LocalizationUtil localizationUtil) {
+    public WinnersCommand(WinnerService winnerService, LocalizationUtil localizationUtil, PaginationRouter paginationRouter) {
         this.winnerService = winnerService;
         this.localizationUtil = localizationUtil;
+        this.paginationRouter = paginationRouter;
     }
 
     public void handleWinnersCommand(SlashCommandInteractionEvent event) {
         // Ensure the guild is not null
         if (event.getGuild() == null) {
-            event.reply("This command can only be used in a server.").setEphemeral(true).queue();
+            ReplyUtil.reply(event, "This command can only be used in a server.", true);
             return;
         }
 
@@ -68,22 +72,23 @@ public class WinnersCommand extends ListenerAdapter { // it is not necessary to
                 .orElse(null);
 
 
-        // If no messageId/title is provided, retrieve all winners for the guild
+        // If no messageId/title is provided, retrieve all winners for the guild, one page at a time
         if (messageId == null && title == null) {
-            List<WinnerEntity> winners = winnerService.getWinnersByGuildId(guildId);
-            if (winners.isEmpty()) {
-                event.reply(localizationUtil.getLocalizedMessage(guildId, "no_winners_found_all")).setEphemeral(true).queue();
+            long totalWinners = winnerService.countWinnersByGuildId(guildId);
+            List<WinnerEntity> winners = winnerService.getWinnersPageAfter(guildId, 0L, NUMBER_OF_WINNERS_PER_PAGE);
+            if (totalWinners == 0 || winners.isEmpty()) {
+                ReplyUtil.reply(event, localizationUtil.getLocalizedMessage(guildId, "no_winners_found_all"), true);
                 return;
             }
 
-            List<String> winnerMessages = new ArrayList<>();
-            for (WinnerEntity winner : winners) {
-                winnerMessages.add("<@" + winner.getUserId() + "> (Giveaway: " + winner.getGiveawayTitle() + ")\n");
-            }
-
-            List<EmbedBuilder> embeds =
-                    EmbedUtil.createPaginatedEmbeds(winnerMessages, NUMBER_OF_WINNERS_PER_PAGE); // 5 winners per page
-            sendPaginatedEmbed(event, embeds);
+            int totalPages = (int) Math.ceil((double) totalWinners / NUMBER_OF_WINNERS_PER_PAGE);
+            WinnersPage page = toPage(guildId, winners, 0, totalPages);
+            List<ActionRow> components = totalPages > 1 ? List.of(pageButtons(page)) : List.of();
+            ReplyUtil.replyEmbed(event, EmbedUtil.createPageEmbed(toWinnerMessages(winners), 0, totalPages).build(), components, false, message -> {
+                if (totalPages > 1) {
+                    paginationRouter.register(message.getIdLong(), page, this::flipPage);
+                }
+            });
             return;
         }
 
@@ -93,7 +98,7 @@ public class WinnersCommand extends ListenerAdapter { // it is not necessary to
             List<WinnerEntity> winners = winnerService.getWinnersByGiveawayMessageIdAndGuildId(messageId, guildId);
             LOGGER.info("Retrieved winners: {}", winners); // Add logging to check retrieved winners
             if (winners.isEmpty()) {
-                event.reply(localizationUtil.getLocalizedMessage(guildId, "no_winners_found").replace("{0}", title)).setEphemeral(true).queue();
+                ReplyUtil.reply(event, localizationUtil.getLocalizedMessage(guildId, "no_winners_found").replace("{0}", title), true);
                 return;
             }
 
@@ -103,61 +108,48 @@ public class WinnersCommand extends ListenerAdapter { // it is not necessary to
                 winnerMessage.append("<@").append(winner.getUserId()).append(">\n");
             }
 
-            event.reply(winnerMessage.toString()).queue();
+            ReplyUtil.reply(event, winnerMessage.toString(), false);
             LOGGER.info("Winners for giveaway {}: {}", title, winnerMessage);
         } else {
             LOGGER.warn("Missing required options for winners command.");
-            event.reply(localizationUtil.getLocalizedMessage(guildId, "missing_required_options_winners_command")).setEphemeral(true).queue();
+            ReplyUtil.reply(event, localizationUtil.getLocalizedMessage(guildId, "missing_required_options_winners_command"), true);
         }
     }
 
-    // Method to send a paginated embed
-    // It embeds 5 winners per page and adds reaction buttons to navigate through the pages
-    // The method listens for reaction events and updates the embed accordingly (that's why it extends ListenerAdapter)
-    private void sendPaginatedEmbed(SlashCommandInteractionEvent event, List<EmbedBuilder> embeds) {
-        if (embeds.isEmpty()) {
-            LOGGER.warn("No embeds to send.");
-            return;
+    // Flips the page of a paginated winners message, the new page is read from the database on the command pool
+    // A page is a single indexed query of NUMBER_OF_WINNERS_PER_PAGE rows
+    private WinnersPage flipPage(ButtonInteractionEvent event, WinnersPage current, boolean next) {
+        List<WinnerEntity> winners = next
+                ? winnerService.getWinnersPageAfter(current.guildId(), current.lastId(), NUMBER_OF_WINNERS_PER_PAGE)
+                : winnerService.getWinnersPageBefore(current.guildId(), current.firstId(), NUMBER_OF_WINNERS_PER_PAGE);
+        if (winners.isEmpty()) {
+            return current;
         }
 
-        event.replyEmbeds(embeds.get(0).build()).queue(response -> {
-            if (embeds.size() > 1) {
-                response.retrieveOriginal().queue(message -> {
-                    message.addReaction(Emoji.fromUnicode("⬅️")).queue();
-                    message.addReaction(Emoji.fromUnicode("➡️")).queue();
-                    handleReactions(event, message, embeds);
-                });
-            }
-        });
-    }
-
-    private void handleReactions(SlashCommandInteractionEvent event, Message message, List<EmbedBuilder> embeds) {
-        final int[] currentPage = {0};
+        int pageIndex = next ? current.pageIndex() + 1 : Math.max(0, current.pageIndex() - 1);
+        // Winners added since the message was sent can add pages
+        int totalPages = Math.max(current.totalPages(), pageIndex + 1);
+        WinnersPage page = toPage(current.guildId(), winners, pageIndex, totalPages);
 
-        event.getJDA().addEventListener(new ListenerAdapter() {
-            @Override
-            public void onMessageReactionAdd(@NotNull MessageReactionAddEvent reactionEvent) {
-                // Ignore bot reactions
-                if (reactionEvent.getUser() != null && reactionEvent.getUser().isBot()) {
-                    return;
-                }
+        event.getHook().editOriginalEmbeds(EmbedUtil.createPageEmbed(toWinnerMessages(winners), pageIndex, totalPages).build())
+                .setComponents(pageButtons(page))
+                .queue();
+        return page;
+    }
 
-                if (reactionEvent.getMessageIdLong() != message.getIdLong()) return;
+    private static WinnersPage toPage(Long guildId, List<WinnerEntity> winners, int pageIndex, int totalPages) {
+        return new WinnersPage(guildId, winners.get(0).getId(), winners.get(winners.size() - 1).getId(), pageIndex, totalPages);
+    }
 
-                reactionEvent.getReaction().removeReaction(reactionEvent.getUser()).queue();
+    private static List<String> toWinnerMessages(List<WinnerEntity> winners) {
+        List<String> winnerMessages = new ArrayList<>(winners.size());
+        for (WinnerEntity winner : winners) {
+            winnerMessages.add("<@" + winner.getUserId() + "> (Giveaway: " + winner.getGiveawayTitle() + ")\n");
+        }
+        return winnerMessages;
+    }
 
-                if (reactionEvent.getReaction().getEmoji().getName().equals("⬅️")) {
-                    if (currentPage[0] > 0) {
-                        currentPage[0]--;
-                        message.editMessageEmbeds(embeds.get(currentPage[0]).build()).queue();
-                    }
-                } else if (reactionEvent.getReaction().getEmoji().getName().equals("➡️")) {
-                    if (currentPage[0] < embeds.size() - 1) {
-                        currentPage[0]++;
-                        message.editMessageEmbeds(embeds.get(currentPage[0]).build()).queue();
-                    }
-                }
-            }
-        });
+    private static ActionRow pageButtons(WinnersPage page) {
+        return PaginationRouter.pageButtons(page.pageIndex() > 0, page.pageIndex() < page.totalPages() - 1);
     }
-}
\ No newline at end of file
+}
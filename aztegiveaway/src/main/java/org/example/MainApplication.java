@@ -2,9 +2,9 @@ package org.example;
 
 import commands.*;
 
-import net.dv8tion.jda.api.JDA;
-import net.dv8tion.jda.api.JDABuilder;
 import net.dv8tion.jda.api.requests.GatewayIntent;
+import net.dv8tion.jda.api.sharding.DefaultShardManagerBuilder;
+import net.dv8tion.jda.api.sharding.ShardManager;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.SpringApplication;
@@ -13,14 +13,26 @@ import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationContext;
 
+import org.example.config.ShardConfig;
+
+import org.example.services.EntryBufferService;
+import org.example.services.GiveawayLeaseService;
 import org.example.services.GiveawayService;
 import org.example.services.LanguagePreferenceService;
+import org.example.services.RecurringGiveawayService;
 import org.example.services.WinnerService;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.example.utils.CommandExecutor;
+import org.example.utils.GiveawayScheduler;
 import org.example.utils.LocalizationUtil;
+import org.example.utils.MessageDispatcher;
+import org.example.utils.MeteredEventManager;
+import org.example.utils.PaginationRouter;
+import org.example.utils.ReactionReconciler;
+import org.example.utils.RecurringGiveawayScheduler;
 import org.example.utils.RescheduleUtil;
 import org.example.utils.SlashCommandRegistrationUtil;
 
@@ -55,13 +67,21 @@ public class MainApplication {
             GiveawayService giveawayService = context.getBean(GiveawayService.class);
             WinnerService winnerService = context.getBean(WinnerService.class);
             LanguagePreferenceService languagePreferenceService = context.getBean(LanguagePreferenceService.class);
-
-            GiveawayCommand giveawayCommand = new GiveawayCommand(giveawayService, winnerService, localizationUtil);
+            EntryBufferService entryBufferService = context.getBean(EntryBufferService.class);
+            GiveawayScheduler giveawayScheduler = context.getBean(GiveawayScheduler.class);
+            PaginationRouter paginationRouter = context.getBean(PaginationRouter.class);
+            MessageDispatcher messageDispatcher = context.getBean(MessageDispatcher.class);
+            RecurringGiveawayService recurringGiveawayService = context.getBean(RecurringGiveawayService.class);
+            RecurringGiveawayScheduler recurringGiveawayScheduler = context.getBean(RecurringGiveawayScheduler.class);
+
+            GiveawayCommand giveawayCommand = new GiveawayCommand(giveawayService, winnerService, entryBufferService, localizationUtil, giveawayScheduler, messageDispatcher);
             RerollCommand rerollCommand = new RerollCommand(giveawayService, winnerService, localizationUtil);
-            RollCommand rollCommand = new RollCommand(giveawayService, winnerService, localizationUtil);
-            WinnersCommand winnersCommand = new WinnersCommand(winnerService, localizationUtil);
-            DeleteCommand deleteCommand = new DeleteCommand(giveawayService, localizationUtil);
-            PlanCommand planCommand = new PlanCommand(giveawayService, winnerService, localizationUtil);
+            RollCommand rollCommand = new RollCommand(giveawayService, winnerService, localizationUtil, giveawayScheduler, messageDispatcher);
+            WinnersCommand winnersCommand = new WinnersCommand(winnerService, localizationUtil, paginationRouter);
+            DeleteCommand deleteCommand = new DeleteCommand(giveawayService, localizationUtil, giveawayScheduler, messageDispatcher,
+                    recurringGiveawayService, recurringGiveawayScheduler);
+            PlanCommand planCommand = new PlanCommand(giveawayService, winnerService, localizationUtil, giveawayScheduler, messageDispatcher);
+            RecurringCommand recurringCommand = new RecurringCommand(giveawayService, recurringGiveawayService, recurringGiveawayScheduler, localizationUtil);
             SetLanguageCommand setLanguageCommand = new SetLanguageCommand(languagePreferenceService, localizationUtil);
 
             SlashCommandListener slashCommandListener = new SlashCommandListener(
@@ -71,26 +91,38 @@ public class MainApplication {
                     deleteCommand,
                     winnersCommand,
                     planCommand,
+                    recurringCommand,
                     setLanguageCommand,
-                    localizationUtil
+                    localizationUtil,
+                    context.getBean(CommandExecutor.class)
             );
 
-            JDA jda = JDABuilder.createDefault(token)
+            // Every shard has its own gateway connection and event thread, channels are resolved through the shard of their guild
+            ShardConfig shardConfig = context.getBean(ShardConfig.class);
+            DefaultShardManagerBuilder shardManagerBuilder = DefaultShardManagerBuilder.createDefault(token)
                     .enableIntents(
                             GatewayIntent.GUILD_MESSAGES,
                             GatewayIntent.MESSAGE_CONTENT,
                             GatewayIntent.GUILD_MESSAGE_REACTIONS
                     )
-                    .addEventListeners(slashCommandListener, giveawayCommand)
-                    .addEventListeners(giveawayCommand)
-                    .build();
-
-            SlashCommandRegistrationUtil.registerSlashCommands(jda);
+                    .setShardsTotal(shardConfig.getTotal())
+                    .setEventManagerProvider(MeteredEventManager::new)
+                    .addEventListeners(slashCommandListener, giveawayCommand, paginationRouter);
+            if (shardConfig.isPartial()) {
+                // The other shards run on other instances
+                shardManagerBuilder.setShards(shardConfig.getFirst(), shardConfig.getLast());
+                LOGGER.info("Running shards {} to {} of {}", shardConfig.getFirst(), shardConfig.getLast(), shardConfig.getTotal());
+            }
+            ShardManager shardManager = shardManagerBuilder.build();
+
+            SlashCommandRegistrationUtil.registerSlashCommands(shardManager);
 
             LOGGER.info("Bot is starting...");
 
-            RescheduleUtil rescheduleUtil = new RescheduleUtil(jda, giveawayService, winnerService, localizationUtil);
-            rescheduleUtil.rescheduleActiveAndPlannedGiveaways();
+            RescheduleUtil rescheduleUtil = new RescheduleUtil(shardManager, giveawayService, winnerService, localizationUtil, giveawayScheduler,
+                    context.getBean(GiveawayLeaseService.class), context.getBean(ReactionReconciler.class), messageDispatcher,
+                    recurringGiveawayScheduler);
+            rescheduleUtil.rescheduleInBackground();
         } catch (Exception e) {
             LOGGER.error("An unknown error occurred: ", e);
         }
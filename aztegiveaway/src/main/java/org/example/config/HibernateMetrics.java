@@ -0,0 +1,53 @@
+/**
+ * Exposes the Hibernate statistics of the persistence unit as Micrometer meters (hibernate.*).
+ * The statistics are only collected with spring.jpa.properties.hibernate.generate_statistics=true.
+ * The connection pool itself is measured by the actuator (hikaricp.*).
+ */
+
+package org.example.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+
+import jakarta.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.function.ToDoubleFunction;
+
+@Component
+public class HibernateMetrics {
+
+    @Autowired
+    public HibernateMetrics(EntityManagerFactory entityManagerFactory) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        counter(statistics, "hibernate.sessions.open", "Sessions opened", Statistics::getSessionOpenCount);
+        counter(statistics, "hibernate.transactions", "Transactions completed", Statistics::getTransactionCount);
+        counter(statistics, "hibernate.connections.obtained", "JDBC connections obtained by the sessions", Statistics::getConnectCount);
+        counter(statistics, "hibernate.statements.prepared", "JDBC statements prepared", Statistics::getPrepareStatementCount);
+        counter(statistics, "hibernate.query.executions", "Queries executed", Statistics::getQueryExecutionCount);
+        counter(statistics, "hibernate.entities.loaded", "Entities loaded", Statistics::getEntityLoadCount);
+        counter(statistics, "hibernate.entities.inserted", "Entities inserted", Statistics::getEntityInsertCount);
+        counter(statistics, "hibernate.entities.updated", "Entities updated", Statistics::getEntityUpdateCount);
+        counter(statistics, "hibernate.entities.deleted", "Entities deleted", Statistics::getEntityDeleteCount);
+        counter(statistics, "hibernate.flushes", "Session flushes", Statistics::getFlushCount);
+        counter(statistics, "hibernate.optimistic.failures", "Saves that failed on a stale version", Statistics::getOptimisticFailureCount);
+
+        Gauge.builder("hibernate.query.executions.max", statistics, Statistics::getQueryExecutionMaxTime)
+                .description("Slowest query execution time so far")
+                .baseUnit("milliseconds")
+                .register(Metrics.globalRegistry);
+    }
+
+    private static void counter(Statistics statistics, String name, String description, ToDoubleFunction<Statistics> value) {
+        FunctionCounter.builder(name, statistics, value)
+                .description(description)
+                .register(Metrics.globalRegistry);
+    }
+}
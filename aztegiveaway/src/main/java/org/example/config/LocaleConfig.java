@@ -2,34 +2,121 @@
  * This class is responsible for providing the locale based on the guild's language preference.
  * It uses the LanguagePreferenceService to get the language preference for a guild.
  * If the language preference is "ro", it returns a Romanian locale, otherwise it returns an English locale.
+ * Resolved locales are kept in a bounded LRU cache (entries also expire after a while), so a localized message
+ * does not cost a database query. The cache entry of a guild must be invalidated when its preference changes,
+ * a locale that was being loaded while an invalidation happened is returned but not cached.
+ * Cache hits and misses are exposed as Micrometer counters.
  */
 
 package org.example.config;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+
 import org.example.services.LanguagePreferenceService;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 @Component
 public class LocaleConfig {
 
+    public static final Locale ENGLISH = new Locale.Builder().setLanguage("en").setRegion("US").build();
+    public static final Locale ROMANIAN = new Locale.Builder().setLanguage("ro").setRegion("RO").build();
+
     private final LanguagePreferenceService languagePreferenceService;
+    private final long ttlMillis;
+
+    // guild ID -> cached locale, in access order so that the least recently used guild is evicted first
+    private final Map<Long, CachedLocale> cache;
+
+    private final Counter hits = Counter.builder("giveaway.locale.cache.requests")
+            .tag("result", "hit")
+            .description("Guild locale lookups served from the cache")
+            .register(Metrics.globalRegistry);
+    private final Counter misses = Counter.builder("giveaway.locale.cache.requests")
+            .tag("result", "miss")
+            .description("Guild locale lookups that queried the database")
+            .register(Metrics.globalRegistry);
+
+    // Incremented by every invalidation, a locale loaded across an invalidation is not cached (guarded by the cache lock)
+    private long invalidations;
+
+    private record CachedLocale(Locale locale, long expiresAtMillis) {}
 
     @Autowired
-    public LocaleConfig(LanguagePreferenceService languagePreferenceService) {
+    public LocaleConfig(LanguagePreferenceService languagePreferenceService,
+                        @Value("${giveaway.locale-cache.max-size:10000}") int maxSize,
+                        @Value("${giveaway.locale-cache.ttl-minutes:10}") long ttlMinutes) {
         this.languagePreferenceService = languagePreferenceService;
+        this.ttlMillis = ttlMinutes * 60_000;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CachedLocale> eldest) {
+                return size() > maxSize;
+            }
+        };
+
+        Gauge.builder("giveaway.locale.cache.size", this, LocaleConfig::getCacheSize)
+                .description("Number of guild locales in the cache")
+                .register(Metrics.globalRegistry);
     }
 
     // returns the locale based on the guild's language preference
     public Locale getLocaleForGuild(Long guildId) {
-        String language = languagePreferenceService.getLanguagePreference(guildId);
+        long now = System.currentTimeMillis();
+        long generation;
+        synchronized (cache) {
+            CachedLocale cached = cache.get(guildId);
+            if (cached != null && cached.expiresAtMillis() > now) {
+                hits.increment();
+                return cached.locale();
+            }
+            generation = invalidations;
+        }
+
+        // The query runs outside the lock, two threads missing at once simply both load the same value
+        misses.increment();
+        Locale locale = toLocale(languagePreferenceService.getLanguagePreference(guildId));
+        synchronized (cache) {
+            // The preference may have changed while it was loaded, the old value must not be cached until the TTL expires
+            if (generation == invalidations) {
+                cache.put(guildId, new CachedLocale(locale, now + ttlMillis));
+            }
+        }
+        return locale;
+    }
+
+    // must be called whenever the language preference of the guild changes
+    public void invalidate(Long guildId) {
+        synchronized (cache) {
+            cache.remove(guildId);
+            invalidations++;
+        }
+    }
+
+    public List<Locale> getSupportedLocales() {
+        return List.of(ENGLISH, ROMANIAN);
+    }
+
+    public int getCacheSize() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    private static Locale toLocale(String language) {
         if ("ro".equals(language)) {
-            return new Locale.Builder().setLanguage("ro").setRegion("RO").build();
+            return ROMANIAN;
         } else {
-            return new Locale.Builder().setLanguage("en").setRegion("US").build();
+            return ENGLISH;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,66 @@
+/**
+ * The gateway shards run by this instance of the bot.
+ * By default an instance runs every shard. Several instances split the shards with bot.shards.first and bot.shards.last,
+ * all of them using the same bot.shards.total, and each instance only owns the giveaways of the guilds on its shards.
+ * The shard of a guild is (guild ID >> 22) % total, as computed by Discord.
+ */
+
+package org.example.config;
+
+import net.dv8tion.jda.api.utils.MiscUtil;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+@Component
+public class ShardConfig {
+
+    private final int total;
+    private final int first;
+    private final int last;
+
+    @Autowired
+    public ShardConfig(@Value("${bot.shards.total:-1}") int total,
+                       @Value("${bot.shards.first:0}") int first,
+                       @Value("${bot.shards.last:-1}") int last) {
+        boolean partial = first > 0 || last >= 0;
+        if (partial && total <= 0) {
+            throw new IllegalArgumentException("bot.shards.first and bot.shards.last require a fixed bot.shards.total");
+        }
+        if (partial && (first < 0 || (last >= 0 && (last < first || last >= total)))) {
+            throw new IllegalArgumentException("Invalid shard range " + first + ".." + last + " of " + total + " shards");
+        }
+        this.total = total;
+        this.first = first;
+        this.last = last >= 0 ? last : Math.max(total - 1, 0);
+    }
+
+    // -1 uses the shard count recommended by Discord
+    public int getTotal() {
+        return total;
+    }
+
+    // True if this instance only runs some of the shards
+    public boolean isPartial() {
+        return total > 0 && (first > 0 || last < total - 1);
+    }
+
+    public int getFirst() {
+        return first;
+    }
+
+    public int getLast() {
+        return isPartial() ? last : Integer.MAX_VALUE;
+    }
+
+    // 0 for every guild when the shard count is left to Discord, this instance runs all shards then
+    public int shardOf(long guildId) {
+        return total > 0 ? MiscUtil.getShardForGuild(guildId, total) : 0;
+    }
+
+    public boolean isLocal(long guildId) {
+        int shard = shardOf(guildId);
+        return shard >= first && shard <= getLast();
+    }
+}
@@ -10,25 +10,29 @@
  * - channelId: the ID of the channel where the giveaway is hosted
  * - guildId: the ID of the guild where the giveaway is hosted
  * - startTime: the time when the giveaway started
- * - entries: the list of user IDs who entered the giveaway
+ * - status: the lifecycle state of the giveaway (indexed, used to find unfinished giveaways at startup)
+ * - reminderSchedule: when reminders are sent, e.g. "75%, 95%, last 10m" (see ReminderSchedule), null for the default 50%, 90%
+ * - version: optimistic lock, a save based on a stale copy of the giveaway fails instead of overwriting a newer state
+ * The users who entered the giveaway are stored in their own table (see GiveawayEntryEntity).
  */
 
 package org.example.entities;
 
 import jakarta.persistence.*;
 import java.time.Instant;
-import java.util.ArrayList;
-import java.util.List;
 
 @Entity
-@Table(name = "giveaways", uniqueConstraints = @UniqueConstraint(columnNames = {"title", "guildId"}))
+@Table(name = "giveaways",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"title", "guildId"}),
+        indexes = @Index(name = "idx_giveaways_status", columnList = "status, id"))
 public class GiveawayEntity {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(name = "message_id", nullable = false, unique = true)
-    private Long messageId = 0L;
+    // Null until the message of a planned giveaway is posted, the unique key allows any number of nulls
+    @Column(name = "message_id", unique = true)
+    private Long messageId;
 
     @Column(name = "title", nullable = false, length = 100)
     private String title;
@@ -51,10 +55,18 @@ public class GiveawayEntity {
     @Column(name = "start_time", nullable = false)
     private Instant startTime = Instant.now();
 
-    @ElementCollection
-    @CollectionTable(name = "giveaway_entries", joinColumns = @JoinColumn(name = "giveaway_id"))
-    @Column(name = "user_id")
-    private final List<Long> entries = new ArrayList<>();
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", length = 16)
+    private GiveawayStatus status = GiveawayStatus.ACTIVE;
+
+    // Null means the default schedule (see ReminderSchedule)
+    @Column(name = "reminder_schedule", length = 100)
+    private String reminderSchedule;
+
+    // Existing rows get 0 when the column is added
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "bigint not null default 0")
+    private long version;
 
     public GiveawayEntity() {}
 
@@ -76,8 +88,13 @@ public class GiveawayEntity {
         this.id = id;
     }
 
+    // 0 while the message is not posted
     public long getMessageId() {
-        return messageId;
+        return messageId != null ? messageId : 0L;
+    }
+
+    public boolean hasMessage() {
+        return messageId != null;
     }
 
     public void setMessageId(long messageId) {
@@ -140,19 +157,27 @@ public class GiveawayEntity {
         this.startTime = startTime;
     }
 
-    public void addEntry(Long userId) {
-        if (!entries.contains(userId)) {
-            entries.add(userId);
-        }
+    public GiveawayStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(GiveawayStatus status) {
+        this.status = status;
+    }
+
+    public String getReminderSchedule() {
+        return reminderSchedule;
+    }
+
+    public void setReminderSchedule(String reminderSchedule) {
+        this.reminderSchedule = reminderSchedule;
     }
 
-    public List<Long> getEntries() {
-        return entries;
+    public long getVersion() {
+        return version;
     }
 
-    // used for testing
-    public void setEntries(List<Long> entries) {
-        this.entries.clear();
-        this.entries.addAll(entries);
+    public void setVersion(long version) {
+        this.version = version;
     }
 }
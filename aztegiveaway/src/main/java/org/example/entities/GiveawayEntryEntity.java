@@ -0,0 +1,72 @@
+/**
+ * This class represents one entry (a user that reacted) of a giveaway in the database.
+ * It contains the following columns:
+ * - giveaway_id: the ID of the giveaway
+ * - user_id: the ID of the user who entered the giveaway
+ * The pair (giveaway_id, user_id) is the primary key, so a user can enter a giveaway only once
+ * and membership checks, counts and deletions of a giveaway's entries use that index.
+ */
+
+package org.example.entities;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+@Entity
+@IdClass(GiveawayEntryEntity.EntryId.class)
+@Table(name = "giveaway_entries", uniqueConstraints = @UniqueConstraint(columnNames = {"giveaway_id", "user_id"}))
+public class GiveawayEntryEntity {
+    @Id
+    @Column(name = "giveaway_id", nullable = false)
+    private Long giveawayId;
+
+    @Id
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    public GiveawayEntryEntity() {}
+
+    public GiveawayEntryEntity(Long giveawayId, Long userId) {
+        this.giveawayId = giveawayId;
+        this.userId = userId;
+    }
+
+    public Long getGiveawayId() {
+        return giveawayId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    // Composite primary key of the giveaway_entries table
+    public static class EntryId implements Serializable {
+        private Long giveawayId;
+        private Long userId;
+
+        public EntryId() {}
+
+        public EntryId(Long giveawayId, Long userId) {
+            this.giveawayId = giveawayId;
+            this.userId = userId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof EntryId entryId)) {
+                return false;
+            }
+            return Objects.equals(giveawayId, entryId.giveawayId) && Objects.equals(userId, entryId.userId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(giveawayId, userId);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/**
+ * This class represents the lease of a giveaway in the database.
+ * The instance owning the lease is the only one that schedules the end, the reminders and the planned start of the giveaway.
+ * It contains the following columns:
+ * - giveaway_id: the ID of the giveaway (primary key, a giveaway has at most one lease)
+ * - owner: the ID of the instance that owns the lease
+ * - expires_at: the lease can be taken over by another instance after this time, the owner renews it periodically
+ * - shard: the gateway shard of the guild of the giveaway, only the instances running that shard take the lease over
+ */
+
+package org.example.entities;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "giveaway_leases", indexes = {
+        @Index(name = "idx_giveaway_leases_owner", columnList = "owner"),
+        @Index(name = "idx_giveaway_leases_expires_at", columnList = "expires_at, shard")
+})
+public class GiveawayLeaseEntity {
+    @Id
+    @Column(name = "giveaway_id", nullable = false)
+    private Long giveawayId;
+
+    @Column(name = "owner", nullable = false, length = 64)
+    private String owner;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    @Column(name = "shard", nullable = false, columnDefinition = "int not null default 0")
+    private int shard;
+
+    public GiveawayLeaseEntity() {}
+
+    public GiveawayLeaseEntity(Long giveawayId, String owner, Instant expiresAt, int shard) {
+        this.giveawayId = giveawayId;
+        this.owner = owner;
+        this.expiresAt = expiresAt;
+        this.shard = shard;
+    }
+
+    public Long getGiveawayId() {
+        return giveawayId;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public int getShard() {
+        return shard;
+    }
+}
@@ -0,0 +1,17 @@
+/**
+ * Lifecycle state of a giveaway, persisted in the status column of the giveaways table.
+ * - PLANNED: the giveaway was planned and its message has not been posted yet
+ * - ACTIVE: the giveaway message is posted and users can enter
+ * - DRAWING: the winners were drawn and stored, the announcement is still pending (it is resent after a restart, never redrawn)
+ * - ENDED: the winners were announced (or there were no entries)
+ * Rows created before the column existed have no status and are treated as unfinished.
+ */
+
+package org.example.entities;
+
+public enum GiveawayStatus {
+    PLANNED,
+    ACTIVE,
+    DRAWING,
+    ENDED
+}
@@ -0,0 +1,158 @@
+/**
+ * This class represents the template of a recurring giveaway in the database.
+ * At every fire time of its cron expression an instance of the template is created as a planned giveaway titled "<title> #<n>".
+ * It contains the following columns:
+ * - id: the primary key of the template
+ * - title, prize, number_of_winners, duration, channel_id, guild_id, reminder_schedule: copied into every instance
+ * - cron: when an instance starts, a Spring cron expression (second minute hour day-of-month month day-of-week), e.g. 0 0 18 * * MON
+ * - zone: the time zone the cron expression is evaluated in, e.g. Europe/Bucharest
+ * - next_fire_time: when the next instance starts (indexed, the earliest one is the only one that is scheduled)
+ * - occurrences: the number of instances created so far
+ */
+
+package org.example.entities;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "recurring_giveaways",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"title", "guild_id"}),
+        indexes = @Index(name = "idx_recurring_giveaways_next_fire_time", columnList = "next_fire_time"))
+public class RecurringGiveawayEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "title", nullable = false, length = 90)
+    private String title;
+
+    @Column(name = "prize", nullable = false, length = 100)
+    private String prize;
+
+    @Column(name = "number_of_winners", nullable = false)
+    private int numberOfWinners;
+
+    @Column(name = "duration", nullable = false)
+    private long duration;
+
+    @Column(name = "channel_id", nullable = false)
+    private Long channelId;
+
+    @Column(name = "guild_id", nullable = false)
+    private Long guildId;
+
+    @Column(name = "reminder_schedule", length = 100)
+    private String reminderSchedule;
+
+    @Column(name = "cron", nullable = false, length = 100)
+    private String cron;
+
+    @Column(name = "zone", nullable = false, length = 64)
+    private String zone;
+
+    @Column(name = "next_fire_time", nullable = false)
+    private Instant nextFireTime;
+
+    @Column(name = "occurrences", nullable = false)
+    private int occurrences;
+
+    public RecurringGiveawayEntity() {}
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getPrize() {
+        return prize;
+    }
+
+    public void setPrize(String prize) {
+        this.prize = prize;
+    }
+
+    public int getNumberOfWinners() {
+        return numberOfWinners;
+    }
+
+    public void setNumberOfWinners(int numberOfWinners) {
+        this.numberOfWinners = numberOfWinners;
+    }
+
+    public long getDuration() {
+        return duration;
+    }
+
+    public void setDuration(long duration) {
+        this.duration = duration;
+    }
+
+    public Long getChannelId() {
+        return channelId;
+    }
+
+    public void setChannelId(Long channelId) {
+        this.channelId = channelId;
+    }
+
+    public Long getGuildId() {
+        return guildId;
+    }
+
+    public void setGuildId(Long guildId) {
+        this.guildId = guildId;
+    }
+
+    public String getReminderSchedule() {
+        return reminderSchedule;
+    }
+
+    public void setReminderSchedule(String reminderSchedule) {
+        this.reminderSchedule = reminderSchedule;
+    }
+
+    public String getCron() {
+        return cron;
+    }
+
+    public void setCron(String cron) {
+        this.cron = cron;
+    }
+
+    public String getZone() {
+        return zone;
+    }
+
+    public void setZone(String zone) {
+        this.zone = zone;
+    }
+
+    public Instant getNextFireTime() {
+        return nextFireTime;
+    }
+
+    public void setNextFireTime(Instant nextFireTime) {
+        this.nextFireTime = nextFireTime;
+    }
+
+    public int getOccurrences() {
+        return occurrences;
+    }
+
+    public void setOccurrences(int occurrences) {
+        this.occurrences = occurrences;
+    }
+}
@@ -6,6 +6,7 @@
  * - giveawayMessageId: the message ID of the giveaway
  * - guildId: the ID of the guild where the giveaway was hosted
  * - userId: the ID of the user who won the giveaway
+ * The (guild_id, id) index serves the keyset pagination of the winners of a guild.
  */
 
 package org.example.entities;
@@ -13,7 +14,9 @@ package org.example.entities;
 import jakarta.persistence.*;
 
 @Entity
-@Table(name = "winners", uniqueConstraints = @UniqueConstraint(columnNames = {"giveaway_title", "giveaway_message_id", "guild_id", "user_id"}))
+@Table(name = "winners",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"giveaway_title", "giveaway_message_id", "guild_id", "user_id"}),
+        indexes = @Index(name = "idx_winners_guild_id", columnList = "guild_id, id"))
 public class WinnerEntity {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
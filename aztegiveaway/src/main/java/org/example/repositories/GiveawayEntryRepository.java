@@ -0,0 +1,26 @@
+/**
+ * Repository for the entries of the giveaways.
+ * Every query filters on the (giveaway_id, user_id) primary key, so no giveaway has to be loaded with all its entries.
+ * Bulk inserts are done with JDBC batches in the EntryBufferService.
+ * The entries of a giveaway are read as an EntrySet (sorted primitive array), never as a list of boxed IDs.
+ */
+
+package org.example.repositories;
+
+import org.example.entities.GiveawayEntryEntity;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface GiveawayEntryRepository extends JpaRepository<GiveawayEntryEntity, GiveawayEntryEntity.EntryId>, GiveawayEntryRepositoryCustom {
+
+    long countByGiveawayId(Long giveawayId);
+
+    @Modifying
+    @Query("DELETE FROM GiveawayEntryEntity e WHERE e.giveawayId = :giveawayId")
+    int deleteByGiveawayId(@Param("giveawayId") Long giveawayId);
+}
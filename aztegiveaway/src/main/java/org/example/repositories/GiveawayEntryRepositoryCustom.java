@@ -0,0 +1,15 @@
+/**
+ * Queries of the giveaway entries that JPA cannot answer without boxing every row (see GiveawayEntryRepositoryImpl).
+ */
+
+package org.example.repositories;
+
+import org.example.utils.EntrySet;
+
+public interface GiveawayEntryRepositoryCustom {
+    // Every user that entered the giveaway, read into a sorted primitive array
+    EntrySet findEntrySetByGiveawayId(Long giveawayId);
+
+    // The users at the given 0-based offsets of the entries in user_id order, in the order of the offsets
+    long[] findUserIdsAtOffsets(Long giveawayId, int[] offsets);
+}
@@ -0,0 +1,89 @@
+/**
+ * Reads the entries of a giveaway straight into an EntrySet.
+ * The rows are read in (giveaway_id, user_id) primary key order, so the user IDs arrive sorted and are only copied into a
+ * growing long array: no entity, no boxed Long and no sort. The MySQL driver streams the rows (fetch size Integer.MIN_VALUE)
+ * instead of buffering the whole result before the first row is read.
+ * A draw does not read the entries at all: the entries are numbered in primary key order inside MySQL (ROW_NUMBER, MySQL 8)
+ * and only the rows at the drawn offsets are returned, so a draw among 500k entries sends a handful of rows over the wire.
+ */
+
+package org.example.repositories;
+
+import org.example.utils.EntrySet;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+public class GiveawayEntryRepositoryImpl implements GiveawayEntryRepositoryCustom {
+
+    private static final String SELECT_ENTRIES_SQL = "SELECT user_id FROM giveaway_entries WHERE giveaway_id = ? ORDER BY user_id";
+    private static final String SELECT_AT_OFFSETS_SQL = "SELECT ranked.rn, ranked.user_id FROM ("
+            + "SELECT user_id, ROW_NUMBER() OVER (ORDER BY user_id) - 1 AS rn FROM giveaway_entries WHERE giveaway_id = ?"
+            + ") ranked WHERE ranked.rn IN (%s)";
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate streamingJdbcTemplate;
+
+    @Autowired
+    public GiveawayEntryRepositoryImpl(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        this.streamingJdbcTemplate.setFetchSize(Integer.MIN_VALUE);
+    }
+
+    @Override
+    public EntrySet findEntrySetByGiveawayId(Long giveawayId) {
+        long[][] buffer = {new long[INITIAL_CAPACITY]};
+        int[] size = {0};
+        streamingJdbcTemplate.query(SELECT_ENTRIES_SQL, resultSet -> {
+            if (size[0] == buffer[0].length) {
+                buffer[0] = Arrays.copyOf(buffer[0], buffer[0].length * 2);
+            }
+            buffer[0][size[0]++] = resultSet.getLong(1);
+        }, giveawayId);
+        return EntrySet.ofSorted(buffer[0], size[0]);
+    }
+
+    @Override
+    public long[] findUserIdsAtOffsets(Long giveawayId, int[] offsets) {
+        if (offsets.length == 0) {
+            return new long[0];
+        }
+
+        // Position of every offset in the result, the rows come back in user_id order
+        Map<Long, Integer> positions = new HashMap<>(offsets.length * 2);
+        Object[] parameters = new Object[offsets.length + 1];
+        parameters[0] = giveawayId;
+        for (int i = 0; i < offsets.length; i++) {
+            positions.put((long) offsets[i], i);
+            parameters[i + 1] = offsets[i];
+        }
+
+        long[] userIds = new long[offsets.length];
+        boolean[] found = new boolean[offsets.length];
+        String placeholders = String.join(", ", Collections.nCopies(offsets.length, "?"));
+        jdbcTemplate.query(String.format(SELECT_AT_OFFSETS_SQL, placeholders), resultSet -> {
+            Integer position = positions.get(resultSet.getLong(1));
+            if (position != null) {
+                userIds[position] = resultSet.getLong(2);
+                found[position] = true;
+            }
+        }, parameters);
+
+        // Entries deleted after they were counted leave their offsets empty
+        int count = 0;
+        for (int i = 0; i < userIds.length; i++) {
+            if (found[i]) {
+                userIds[count++] = userIds[i];
+            }
+        }
+        return count == userIds.length ? userIds : Arrays.copyOf(userIds, count);
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ * Repository for the giveaway leases.
+ * Acquiring a lease is a single MySQL upsert that only changes the row when the lease is free, expired or already ours,
+ * so two instances can never both own the same giveaway.
+ * An instance that does not run the shard of a giveaway hands it over with an expired lease on that shard.
+ * The modifying queries run in their own transaction, they are also called from the heartbeat thread of the GiveawayLeaseService.
+ */
+
+package org.example.repositories;
+
+import org.example.entities.GiveawayLeaseEntity;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface GiveawayLeaseRepository extends JpaRepository<GiveawayLeaseEntity, Long> {
+
+    // The owner is assigned first, so the expiry is only extended when the row belongs to the given owner afterwards
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO giveaway_leases (giveaway_id, owner, expires_at, shard) VALUES (:giveawayId, :owner, :expiresAt, :shard) " +
+            "ON DUPLICATE KEY UPDATE owner = IF(owner = :owner OR expires_at < :now, :owner, owner), " +
+            "expires_at = IF(owner = :owner, :expiresAt, expires_at), shard = IF(owner = :owner, :shard, shard)", nativeQuery = true)
+    int upsertIfAvailable(@Param("giveawayId") Long giveawayId, @Param("owner") String owner,
+                          @Param("expiresAt") Instant expiresAt, @Param("now") Instant now, @Param("shard") int shard);
+
+    // Creates an expired lease without owner if the giveaway has none, so that an instance running the shard takes it over
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO giveaway_leases (giveaway_id, owner, expires_at, shard) VALUES (:giveawayId, '', :expiresAt, :shard) " +
+            "ON DUPLICATE KEY UPDATE giveaway_id = giveaway_id", nativeQuery = true)
+    int insertExpiredIfAbsent(@Param("giveawayId") Long giveawayId, @Param("expiresAt") Instant expiresAt, @Param("shard") int shard);
+
+    boolean existsByGiveawayIdAndOwner(Long giveawayId, String owner);
+
+    // Heartbeat: extends every lease of the owner with one statement
+    @Modifying
+    @Transactional
+    @Query("UPDATE GiveawayLeaseEntity l SET l.expiresAt = :expiresAt WHERE l.owner = :owner")
+    int renewAll(@Param("owner") String owner, @Param("expiresAt") Instant expiresAt);
+
+    // The expired leases of the given shards
+    @Query("SELECT l FROM GiveawayLeaseEntity l WHERE l.expiresAt < :now AND l.shard BETWEEN :firstShard AND :lastShard " +
+            "ORDER BY l.expiresAt")
+    List<GiveawayLeaseEntity> findExpired(@Param("now") Instant now, @Param("firstShard") int firstShard,
+                                          @Param("lastShard") int lastShard, Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM GiveawayLeaseEntity l WHERE l.giveawayId = :giveawayId")
+    int deleteByGiveawayId(@Param("giveawayId") Long giveawayId);
+
+    // Shutdown: the leases of the owner are expired instead of deleted, so the heartbeat of another instance finds and takes them over
+    @Modifying
+    @Transactional
+    @Query("UPDATE GiveawayLeaseEntity l SET l.expiresAt = :expiresAt WHERE l.owner = :owner")
+    int expireAll(@Param("owner") String owner, @Param("expiresAt") Instant expiresAt);
+}
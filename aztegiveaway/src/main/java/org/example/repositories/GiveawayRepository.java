@@ -1,24 +1,64 @@
 /**
- * When you annotate a repository method with @EntityGraph, Spring Data JPA will generate a query that fetches the main entity
- * and its related entities in a single query using a join.
- * This can help reduce the number of queries executed by your application.
+ * Repository for the giveaways.
+ * The entries of a giveaway are not part of the entity anymore, they are queried through the GiveawayEntryRepository.
  */
 
 package org.example.repositories;
 
 import org.example.entities.GiveawayEntity;
+import org.example.entities.GiveawayStatus;
+
+import org.springframework.data.domain.Pageable;
 
-import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface GiveawayRepository extends JpaRepository<GiveawayEntity, Long> {
-    @EntityGraph(attributePaths = {"entries"})
     Optional<GiveawayEntity> findByMessageId(Long messageId);
 
-    @EntityGraph(attributePaths = {"entries"})
     Optional<GiveawayEntity> findByTitleAndGuildId(String title, Long guildId);
+
+    boolean existsByTitleAndGuildId(String title, Long guildId);
+
+    // Keyset pagination over the giveaways that are not in the given status, ordered by ID. Entries are not fetched
+    @Query("SELECT g FROM GiveawayEntity g WHERE (g.status IS NULL OR g.status <> :status) AND g.id > :afterId ORDER BY g.id")
+    List<GiveawayEntity> findPageByStatusNot(@Param("status") GiveawayStatus status, @Param("afterId") Long afterId, Pageable pageable);
+
+    // (message ID, giveaway ID) of the giveaways accepting entries, by keyset pages on the ID. Used to build the ActiveGiveawayIndex
+    @Query("SELECT g.messageId, g.id FROM GiveawayEntity g " +
+            "WHERE (g.status IS NULL OR g.status = org.example.entities.GiveawayStatus.ACTIVE) AND g.messageId <> 0 AND g.id > :afterId ORDER BY g.id")
+    List<Object[]> findActiveMessageIds(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Counts the active (or legacy, status NULL) giveaways through the status index
+    @Query("SELECT COUNT(g) FROM GiveawayEntity g WHERE g.status IS NULL OR g.status = org.example.entities.GiveawayStatus.ACTIVE")
+    long countActive();
+
+    // Writes the giveaway only if it is still at the given version. Returns 0 if it was modified or deleted meanwhile
+    @Modifying
+    @Query("UPDATE GiveawayEntity g SET g.messageId = :messageId, g.title = :title, g.prize = :prize, " +
+            "g.numberOfWinners = :numberOfWinners, g.duration = :duration, g.channelId = :channelId, g.startTime = :startTime, " +
+            "g.status = :status, g.reminderSchedule = :reminderSchedule, g.version = g.version + 1 " +
+            "WHERE g.id = :id AND g.version = :version")
+    int updateIfVersion(@Param("id") Long id, @Param("version") long version, @Param("messageId") Long messageId,
+                        @Param("title") String title, @Param("prize") String prize, @Param("numberOfWinners") int numberOfWinners,
+                        @Param("duration") long duration, @Param("channelId") Long channelId, @Param("startTime") Instant startTime,
+                        @Param("status") GiveawayStatus status, @Param("reminderSchedule") String reminderSchedule);
+
+    @Modifying
+    @Query("UPDATE GiveawayEntity g SET g.status = :status, g.version = g.version + 1 WHERE g.id = :id")
+    int updateStatus(@Param("id") Long id, @Param("status") GiveawayStatus status);
+
+    // Atomically moves an active (or legacy, status NULL) giveaway to DRAWING. Returns 0 if it was already claimed
+    @Modifying
+    @Query("UPDATE GiveawayEntity g SET g.status = org.example.entities.GiveawayStatus.DRAWING, g.version = g.version + 1 " +
+            "WHERE g.id = :id AND (g.status IS NULL OR g.status = org.example.entities.GiveawayStatus.ACTIVE)")
+    int claimForDrawing(@Param("id") Long id);
 }
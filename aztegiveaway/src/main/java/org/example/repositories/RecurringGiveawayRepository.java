@@ -0,0 +1,42 @@
+/**
+ * Repository for the templates of the recurring giveaways.
+ * Due templates are found through the next_fire_time index, the templates are never all loaded at once.
+ */
+
+package org.example.repositories;
+
+import org.example.entities.RecurringGiveawayEntity;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface RecurringGiveawayRepository extends JpaRepository<RecurringGiveawayEntity, Long> {
+    Optional<RecurringGiveawayEntity> findByTitleAndGuildId(String title, Long guildId);
+
+    // Only reads the first entry of the next_fire_time index
+    @Query("SELECT MIN(r.nextFireTime) FROM RecurringGiveawayEntity r")
+    Optional<Instant> findEarliestNextFireTime();
+
+    @Query("SELECT r FROM RecurringGiveawayEntity r WHERE r.nextFireTime <= :now ORDER BY r.nextFireTime")
+    List<RecurringGiveawayEntity> findDue(@Param("now") Instant now, Pageable pageable);
+
+    // Moves the template to its next fire time. Returns 0 if another instance already did, so every fire time creates one instance
+    @Modifying
+    @Query("UPDATE RecurringGiveawayEntity r SET r.nextFireTime = :next, r.occurrences = r.occurrences + 1 " +
+            "WHERE r.id = :id AND r.nextFireTime = :expected")
+    int advance(@Param("id") Long id, @Param("expected") Instant expected, @Param("next") Instant next);
+
+    // Deletes a template that does not fire anymore, with the same guard as advance
+    @Modifying
+    @Query("DELETE FROM RecurringGiveawayEntity r WHERE r.id = :id AND r.nextFireTime = :expected")
+    int deleteIfDue(@Param("id") Long id, @Param("expected") Instant expected);
+}
@@ -1,16 +1,26 @@
 package org.example.repositories;
 
 import org.example.entities.WinnerEntity;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
-import java.util.Optional;
 
 @Repository
 public interface WinnerRepository extends JpaRepository<WinnerEntity, Long> {
     List<WinnerEntity> findByGiveawayMessageIdAndGuildId(Long giveawayMessageId, Long guildId);
-    List<WinnerEntity> findByGuildId(Long guildId);
     void deleteByGiveawayMessageIdAndGuildId(Long giveawayMessageId, Long guildId);
-    Optional<WinnerEntity> findByGiveawayMessageIdAndUserIdAndGuildId(Long giveawayMessageId, Long userId, Long guildId); // New method
+
+    long countByGuildId(Long guildId);
+
+    // Keyset pagination over the winners of a guild: the page after the given ID, ordered by ID
+    @Query("SELECT w FROM WinnerEntity w WHERE w.guildId = :guildId AND w.id > :afterId ORDER BY w.id ASC")
+    List<WinnerEntity> findPageAfter(@Param("guildId") Long guildId, @Param("afterId") Long afterId, Pageable pageable);
+
+    // The page before the given ID, in descending ID order (the caller reverses it)
+    @Query("SELECT w FROM WinnerEntity w WHERE w.guildId = :guildId AND w.id < :beforeId ORDER BY w.id DESC")
+    List<WinnerEntity> findPageBefore(@Param("guildId") Long guildId, @Param("beforeId") Long beforeId, Pageable pageable);
 }
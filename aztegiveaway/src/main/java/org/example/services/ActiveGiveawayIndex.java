@@ -0,0 +1,222 @@
+/**
+ * In-memory index of the giveaways that accept entries, from the ID of the giveaway message to the ID of the giveaway.
+ * Every reaction of every guild the bot is in is checked against it, so reactions on ordinary messages are rejected
+ * without a database query. The index is loaded from the database at startup and kept up to date by the GiveawayService
+ * when a giveaway is created or started, claimed for the draw, ended or deleted.
+ * It is an open addressing hash table of primitive longs (linear probing, at most half full), so a lookup allocates nothing.
+ * Lookups are lock-free optimistic reads, changes are rare and take the write lock.
+ */
+
+package org.example.services;
+
+import org.example.repositories.GiveawayRepository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+@Service
+public class ActiveGiveawayIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ActiveGiveawayIndex.class);
+
+    // Returned when the message is not an active giveaway. Giveaway and message IDs are never 0
+    public static final long NO_GIVEAWAY = 0L;
+
+    private static final int PAGE_SIZE = 1000; // number of giveaways loaded per query at startup
+    private static final int MIN_CAPACITY = 64;
+
+    private final GiveawayRepository giveawayRepository;
+    private final StampedLock lock = new StampedLock();
+
+    // Slot i holds a message ID (0 = empty) and the ID of its giveaway. Both arrays are replaced together when the table grows
+    private record Table(long[] messageIds, long[] giveawayIds) {
+        Table(int capacity) {
+            this(new long[capacity], new long[capacity]);
+        }
+    }
+
+    private Table table = new Table(MIN_CAPACITY);
+    private int size;
+
+    @Autowired
+    public ActiveGiveawayIndex(GiveawayRepository giveawayRepository) {
+        this.giveawayRepository = giveawayRepository;
+    }
+
+    // Streams the active giveaways page by page (keyset on the ID), only their two IDs are selected
+    @PostConstruct
+    public void load() {
+        long afterId = 0L;
+        List<Object[]> page;
+        do {
+            page = giveawayRepository.findActiveMessageIds(afterId, PageRequest.of(0, PAGE_SIZE));
+            for (Object[] row : page) {
+                put((Long) row[0], (Long) row[1]);
+                afterId = (Long) row[1];
+            }
+        } while (page.size() == PAGE_SIZE);
+        LOGGER.info("Indexed {} active giveaways.", size());
+    }
+
+    // Returns the ID of the active giveaway hosted by the message, or NO_GIVEAWAY
+    public long get(long messageId) {
+        if (messageId == 0) {
+            return NO_GIVEAWAY;
+        }
+
+        long stamp = lock.tryOptimisticRead();
+        long giveawayId = find(table, messageId);
+        if (!lock.validate(stamp)) {
+            // A change was made meanwhile, read again under the read lock
+            stamp = lock.readLock();
+            try {
+                giveawayId = find(table, messageId);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return giveawayId;
+    }
+
+    public void put(long messageId, long giveawayId) {
+        if (messageId == 0) {
+            return;
+        }
+
+        long stamp = lock.writeLock();
+        try {
+            if ((size + 1) * 2 > table.messageIds().length) {
+                resize(table.messageIds().length * 2);
+            }
+            long[] messageIds = table.messageIds();
+            int slot = slotOf(messageIds, messageId);
+            if (messageIds[slot] == 0) {
+                size++;
+            }
+            messageIds[slot] = messageId;
+            table.giveawayIds()[slot] = giveawayId;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void remove(long messageId) {
+        if (messageId == 0) {
+            return;
+        }
+
+        long stamp = lock.writeLock();
+        try {
+            int slot = slotOf(table.messageIds(), messageId);
+            if (table.messageIds()[slot] != 0) {
+                removeSlot(slot);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Removes the giveaway when only its ID is known. Scans the table, giveaways only end or are deleted rarely
+    public void removeGiveaway(long giveawayId) {
+        long stamp = lock.writeLock();
+        try {
+            long[] messageIds = table.messageIds();
+            long[] giveawayIds = table.giveawayIds();
+            for (int slot = 0; slot < messageIds.length; slot++) {
+                if (messageIds[slot] != 0 && giveawayIds[slot] == giveawayId) {
+                    removeSlot(slot);
+                    return;
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // May run concurrently with a change: it only reads the given table and always terminates, the caller validates the result
+    private static long find(Table table, long messageId) {
+        long[] keys = table.messageIds();
+        long[] values = table.giveawayIds();
+        int mask = keys.length - 1;
+        for (int slot = hash(messageId) & mask, probes = 0; probes < keys.length; slot = (slot + 1) & mask, probes++) {
+            long key = keys[slot];
+            if (key == messageId) {
+                return values[slot];
+            }
+            if (key == 0) {
+                return NO_GIVEAWAY;
+            }
+        }
+        return NO_GIVEAWAY;
+    }
+
+    // The slot holding the message ID, or the empty slot where it belongs
+    private static int slotOf(long[] keys, long messageId) {
+        int mask = keys.length - 1;
+        int slot = hash(messageId) & mask;
+        while (keys[slot] != 0 && keys[slot] != messageId) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    // Backward shift deletion: moves the following entries of the probe sequence up, so no tombstones are needed
+    private void removeSlot(int slot) {
+        long[] messageIds = table.messageIds();
+        long[] giveawayIds = table.giveawayIds();
+        int mask = messageIds.length - 1;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (messageIds[next] != 0) {
+            int home = hash(messageIds[next]) & mask;
+            // The entry may fill the hole if the hole lies between its home slot and its current slot
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                messageIds[hole] = messageIds[next];
+                giveawayIds[hole] = giveawayIds[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        messageIds[hole] = 0;
+        giveawayIds[hole] = 0;
+        size--;
+    }
+
+    private void resize(int capacity) {
+        Table old = table;
+        Table grown = new Table(capacity);
+        for (int slot = 0; slot < old.messageIds().length; slot++) {
+            long messageId = old.messageIds()[slot];
+            if (messageId != 0) {
+                int newSlot = slotOf(grown.messageIds(), messageId);
+                grown.messageIds()[newSlot] = messageId;
+                grown.giveawayIds()[newSlot] = old.giveawayIds()[slot];
+            }
+        }
+        table = grown;
+    }
+
+    // Snowflakes share their high bits (the timestamp), mix them so that consecutive IDs spread over the table
+    private static int hash(long messageId) {
+        long h = messageId * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,226 @@
+/**
+ * Write-behind buffer for giveaway entries.
+ * Reactions are deduplicated in memory and queued per giveaway instead of loading and re-saving the whole giveaway.
+ * Removed reactions withdraw the entry. Only the latest change of a user is kept until the next flush,
+ * so a user toggling the reaction costs at most one write per flush.
+ * Queued changes are written to the giveaway_entries table with batched JDBC inserts and deletes keyed by (giveaway_id, user_id),
+ * either periodically or as soon as the buffer of a giveaway reaches the configured batch size.
+ * The inserts ignore rows that already exist (unique (giveaway_id, user_id) key), so the in-memory deduplication
+ * only has to know the users seen since startup and never loads the persisted entries.
+ * The users seen are kept per giveaway in a MutableEntrySet (about 8 bytes per entry).
+ * The buffer of a giveaway must be flushed before its winners are drawn (see GiveawayService.flushPendingEntries)
+ * and every buffer is flushed when the application shuts down.
+ */
+
+package org.example.services;
+
+import org.example.utils.MutableEntrySet;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+@Service
+public class EntryBufferService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EntryBufferService.class);
+
+    private static final String INSERT_ENTRY_SQL = "INSERT IGNORE INTO giveaway_entries (giveaway_id, user_id) VALUES (?, ?)";
+    private static final String DELETE_ENTRY_SQL = "DELETE FROM giveaway_entries WHERE giveaway_id = ? AND user_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ActiveGiveawayIndex activeGiveawayIndex;
+    private final int batchSize;
+
+    // giveaway ID -> user IDs that entered since startup, used to drop duplicate reactions before they reach the database.
+    // Kept as sorted primitive arrays, they hold every entrant of every active giveaway
+    private final Map<Long, MutableEntrySet> knownEntries = new ConcurrentHashMap<>();
+
+    // giveaway ID -> changes waiting to be written to the database
+    private final Map<Long, PendingChanges> pendingEntries = new ConcurrentHashMap<>();
+
+    // The latest change of every user of one giveaway since the last flush: true = entered, false = withdrawn
+    private static final class PendingChanges {
+        private final Map<Long, Boolean> changes = new LinkedHashMap<>();
+        // Held while the changes are written, reactions only wait for the short map operations
+        private final Object flushLock = new Object();
+
+        synchronized int put(Long userId, boolean entered) {
+            changes.put(userId, entered);
+            return changes.size();
+        }
+
+        // Takes up to maxChanges changes, in arrival order
+        synchronized Map<Long, Boolean> drain(int maxChanges) {
+            Map<Long, Boolean> drained = new LinkedHashMap<>();
+            Iterator<Map.Entry<Long, Boolean>> iterator = changes.entrySet().iterator();
+            while (iterator.hasNext() && drained.size() < maxChanges) {
+                Map.Entry<Long, Boolean> change = iterator.next();
+                drained.put(change.getKey(), change.getValue());
+                iterator.remove();
+            }
+            return drained;
+        }
+
+        // Puts back changes that could not be written, unless the user changed again meanwhile
+        synchronized void restore(Map<Long, Boolean> failed) {
+            failed.forEach(changes::putIfAbsent);
+        }
+
+        synchronized int size() {
+            return changes.size();
+        }
+    }
+
+    private final ScheduledExecutorService flushExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "entry-buffer-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public EntryBufferService(JdbcTemplate jdbcTemplate,
+                              ActiveGiveawayIndex activeGiveawayIndex,
+                              @Value("${giveaway.entries.flush-batch-size:500}") int batchSize,
+                              @Value("${giveaway.entries.flush-interval-ms:1000}") long flushIntervalMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.activeGiveawayIndex = activeGiveawayIndex;
+        this.batchSize = batchSize;
+        flushExecutor.scheduleWithFixedDelay(this::flushAllSafely, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Returns the ID of the giveaway hosted by the given message or null if the message is not an active giveaway
+    // Answered from memory, a reaction never has to query or load the giveaway
+    public Long resolveGiveawayId(long messageId) {
+        long giveawayId = activeGiveawayIndex.get(messageId);
+        return giveawayId == ActiveGiveawayIndex.NO_GIVEAWAY ? null : giveawayId;
+    }
+
+    // Queues an entry for the giveaway. Returns false if the user already entered since startup
+    public boolean addEntry(Long giveawayId, Long userId) {
+        MutableEntrySet entries = knownEntries.computeIfAbsent(giveawayId, id -> new MutableEntrySet());
+        if (!entries.add(userId)) {
+            return false;
+        }
+
+        queueChange(giveawayId, userId, true);
+        return true;
+    }
+
+    // Queues the withdrawal of the entry of the user. A pending entry of the same user is replaced, not written
+    public void removeEntry(Long giveawayId, Long userId) {
+        MutableEntrySet entries = knownEntries.get(giveawayId);
+        if (entries != null) {
+            entries.remove(userId);
+        }
+        // The user may have entered before startup, so the delete is queued even if the entry is not known
+        queueChange(giveawayId, userId, false);
+    }
+
+    // Queues the entries of several users at once (e.g. the reactions recovered at startup). Returns the number of users queued
+    public int addEntries(Long giveawayId, Collection<Long> userIds) {
+        MutableEntrySet entries = knownEntries.computeIfAbsent(giveawayId, id -> new MutableEntrySet());
+        List<Long> newEntries = new ArrayList<>(userIds.size());
+        for (Long userId : userIds) {
+            if (entries.add(userId)) {
+                newEntries.add(userId);
+            }
+        }
+        if (newEntries.isEmpty()) {
+            return 0;
+        }
+
+        for (Long userId : newEntries) {
+            queueChange(giveawayId, userId, true);
+        }
+        return newEntries.size();
+    }
+
+    // Writes every pending change of the giveaway to the database. Returns once the changes are persisted
+    public void flush(Long giveawayId) {
+        PendingChanges pending = pendingEntries.get(giveawayId);
+        if (pending == null) {
+            return;
+        }
+
+        // The flush lock guarantees that a caller never returns while another flush still writes entries
+        synchronized (pending.flushLock) {
+            Map<Long, Boolean> batch;
+            while (!(batch = pending.drain(batchSize)).isEmpty()) {
+                List<Long> entered = new ArrayList<>(batch.size());
+                List<Long> withdrawn = new ArrayList<>();
+                batch.forEach((userId, isEntered) -> (isEntered ? entered : withdrawn).add(userId));
+                try {
+                    writeBatch(INSERT_ENTRY_SQL, giveawayId, entered);
+                    writeBatch(DELETE_ENTRY_SQL, giveawayId, withdrawn);
+                    LOGGER.info("Flushed {} entries and {} withdrawals for giveaway with ID: {}", entered.size(), withdrawn.size(), giveawayId);
+                } catch (DataAccessException e) {
+                    // Put the changes back so that the next flush retries them (both statements are idempotent)
+                    pending.restore(batch);
+                    LOGGER.error("Failed to flush {} entry changes for giveaway with ID: {}", batch.size(), giveawayId, e);
+                    return;
+                }
+            }
+        }
+    }
+
+    public void flushAll() {
+        pendingEntries.keySet().forEach(this::flush);
+    }
+
+    // Drops every buffered entry and cached state of the giveaway (used when it is deleted or has ended)
+    public void discard(Long giveawayId) {
+        pendingEntries.remove(giveawayId);
+        knownEntries.remove(giveawayId);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushExecutor.shutdown();
+        flushAll();
+        LOGGER.info("Flushed all pending giveaway entries on shutdown.");
+    }
+
+    private void queueChange(Long giveawayId, Long userId, boolean entered) {
+        PendingChanges pending = pendingEntries.computeIfAbsent(giveawayId, id -> new PendingChanges());
+        if (pending.put(userId, entered) >= batchSize) {
+            flushExecutor.execute(() -> flush(giveawayId));
+        }
+    }
+
+    private void writeBatch(String sql, Long giveawayId, List<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(sql, userIds, userIds.size(), (statement, userId) -> {
+            statement.setLong(1, giveawayId);
+            statement.setLong(2, userId);
+        });
+    }
+
+    private void flushAllSafely() {
+        try {
+            flushAll();
+        } catch (Exception e) {
+            LOGGER.error("An unknown error occurred while flushing giveaway entries: ", e);
+        }
+    }
+}
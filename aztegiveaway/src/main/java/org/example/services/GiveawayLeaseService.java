@@ -0,0 +1,141 @@
+/**
+ * Service that makes sure the timed tasks of a giveaway (end, reminders, planned start) run on exactly one instance.
+ * An instance only schedules the tasks of a giveaway after acquiring its lease in the giveaway_leases table.
+ * A heartbeat renews every lease of the instance with one query, so the leases of an instance that died expire
+ * and are taken over by the heartbeat of another instance, which then reschedules those giveaways (see RescheduleUtil).
+ * The instance ID defaults to the host name, which is the pod name on Kubernetes.
+ * When the instances split the shards (see ShardConfig), an instance only owns the giveaways of the guilds on its shards.
+ * It hands the other giveaways over with an expired lease, which the heartbeat of an instance running the shard takes over.
+ * Leases are released when a giveaway ends or is deleted. When the instance shuts down, all of its leases are expired
+ * so that another instance takes them over with its next heartbeat.
+ */
+
+package org.example.services;
+
+import org.example.config.ShardConfig;
+import org.example.entities.GiveawayLeaseEntity;
+import org.example.repositories.GiveawayLeaseRepository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+@Service
+public class GiveawayLeaseService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GiveawayLeaseService.class);
+    private static final int TAKEOVER_BATCH_SIZE = 100; // expired leases taken over per heartbeat
+
+    private final GiveawayLeaseRepository giveawayLeaseRepository;
+    private final ShardConfig shardConfig;
+    private final String instanceId;
+    private final Duration ttl;
+
+    // Called with the ID of every giveaway taken over from a dead instance
+    private volatile LongConsumer takeoverListener;
+
+    private final ScheduledExecutorService heartbeatExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "giveaway-lease-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public GiveawayLeaseService(GiveawayLeaseRepository giveawayLeaseRepository, ShardConfig shardConfig,
+                                @Value("${giveaway.instance-id:${HOSTNAME:local}}") String instanceId,
+                                @Value("${giveaway.leases.ttl-seconds:30}") long ttlSeconds,
+                                @Value("${giveaway.leases.heartbeat-seconds:10}") long heartbeatSeconds) {
+        this.giveawayLeaseRepository = giveawayLeaseRepository;
+        this.shardConfig = shardConfig;
+        this.instanceId = instanceId;
+        this.ttl = Duration.ofSeconds(ttlSeconds);
+        heartbeatExecutor.scheduleWithFixedDelay(this::heartbeatSafely, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+        LOGGER.info("Giveaway leases are owned by instance: {}", instanceId);
+    }
+
+    // Returns true if this instance owns the lease of the giveaway (acquired now, renewed or taken over after expiry).
+    // A giveaway of a guild on another shard is handed over instead, its lease is never owned here
+    public boolean tryAcquire(Long giveawayId, long guildId) {
+        int shard = shardConfig.shardOf(guildId);
+        if (!shardConfig.isLocal(guildId)) {
+            giveawayLeaseRepository.insertExpiredIfAbsent(giveawayId, Instant.EPOCH, shard);
+            return false;
+        }
+        return acquire(giveawayId, shard);
+    }
+
+    // Returns true if the lease of the giveaway still belongs to this instance (it may have been taken over meanwhile)
+    public boolean isOwner(Long giveawayId) {
+        return giveawayLeaseRepository.existsByGiveawayIdAndOwner(giveawayId, instanceId);
+    }
+
+    public void release(Long giveawayId) {
+        giveawayLeaseRepository.deleteByGiveawayId(giveawayId);
+    }
+
+    public void setTakeoverListener(LongConsumer takeoverListener) {
+        this.takeoverListener = takeoverListener;
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    // Renews the leases of this instance, then takes over the expired leases of other instances
+    public void heartbeat() {
+        Instant now = Instant.now();
+        giveawayLeaseRepository.renewAll(instanceId, now.plus(ttl));
+
+        LongConsumer listener = takeoverListener;
+        if (listener == null) {
+            return; // the bot is not ready to reschedule giveaways yet
+        }
+
+        List<GiveawayLeaseEntity> expired = giveawayLeaseRepository.findExpired(now, shardConfig.getFirst(), shardConfig.getLast(),
+                PageRequest.of(0, TAKEOVER_BATCH_SIZE));
+        for (GiveawayLeaseEntity lease : expired) {
+            Long giveawayId = lease.getGiveawayId();
+            if (acquire(giveawayId, lease.getShard())) {
+                LOGGER.info("Took over the lease of giveaway with ID: {}", giveawayId);
+                listener.accept(giveawayId);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeatExecutor.shutdownNow();
+        // Lets the other instances take over right away instead of waiting for the leases to expire.
+        // A deleted lease would never be taken over, the expired ones are found (first) by the next heartbeat of another instance
+        int released = giveawayLeaseRepository.expireAll(instanceId, Instant.EPOCH);
+        LOGGER.info("Released {} giveaway leases on shutdown.", released);
+    }
+
+    private boolean acquire(Long giveawayId, int shard) {
+        Instant now = Instant.now();
+        giveawayLeaseRepository.upsertIfAvailable(giveawayId, instanceId, now.plus(ttl), now, shard);
+        return giveawayLeaseRepository.existsByGiveawayIdAndOwner(giveawayId, instanceId);
+    }
+
+    private void heartbeatSafely() {
+        try {
+            heartbeat();
+        } catch (Exception e) {
+            LOGGER.error("An unknown error occurred during the lease heartbeat: ", e);
+        }
+    }
+}
@@ -1,27 +1,33 @@
 /**
- * Service class for managing giveaways.
- * This class contains methods for creating, updating, deleting, and retrieving giveaways.
- * It uses Transactional to ensure that a sequence of database operations are executed as a single unit of work.
- * If any operation within the transaction fails, the entire transaction can be rolled back, maintaining data integrity.
- * READ-ONLY transactions are used when the method only reads data from the database and does not modify it. ->
- * -> The underlying database connection can be configured to be more efficient since no changes are expected.
- * Usage of giveaway.getEntries().size(); is used to initialize the collection of entries to avoid LazyInitializationException.
- * This is a common practice when working with JPA and Hibernate to ensure that the collection is loaded before the transaction ends.
+ * Service class for managing giveaways: creating, updating, deleting and retrieving them, and drawing their winners.
+ * Entries are written behind through the EntryBufferService, the timed tasks of a giveaway belong to the instance owning its lease.
  */
 
 package org.example.services;
 
 import org.example.entities.GiveawayEntity;
+import org.example.entities.GiveawayStatus;
+import org.example.entities.WinnerEntity;
+import org.example.repositories.GiveawayEntryRepository;
 import org.example.repositories.GiveawayRepository;
+import org.example.utils.EntrySet;
+import org.example.utils.FairRandomizer;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Arrays;
 import java.util.List;
 
 @Service
@@ -29,87 +35,258 @@ public class GiveawayService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(GiveawayService.class);
     private final GiveawayRepository giveawayRepository;
+    private final GiveawayEntryRepository giveawayEntryRepository;
+    private final EntryBufferService entryBufferService;
+    private final WinnerService winnerService;
+    private final GiveawayLeaseService giveawayLeaseService;
+    private final ActiveGiveawayIndex activeGiveawayIndex;
+    private final ScheduleSnapshot scheduleSnapshot;
+
+    // The giveaway whose winners were drawn, the IDs of the winners (empty if there were no entries)
+    // and the number of entries they were drawn from (-1 if they had been drawn before)
+    public record DrawResult(GiveawayEntity giveaway, List<Long> winnerIds, int entryCount) {}
 
     @Autowired
-    public GiveawayService(GiveawayRepository giveawayRepository) {
+    public GiveawayService(GiveawayRepository giveawayRepository, GiveawayEntryRepository giveawayEntryRepository,
+                           EntryBufferService entryBufferService, WinnerService winnerService,
+                           GiveawayLeaseService giveawayLeaseService, ActiveGiveawayIndex activeGiveawayIndex,
+                           ScheduleSnapshot scheduleSnapshot) {
         this.giveawayRepository = giveawayRepository;
+        this.giveawayEntryRepository = giveawayEntryRepository;
+        this.entryBufferService = entryBufferService;
+        this.winnerService = winnerService;
+        this.giveawayLeaseService = giveawayLeaseService;
+        this.activeGiveawayIndex = activeGiveawayIndex;
+        this.scheduleSnapshot = scheduleSnapshot;
+
+        Gauge.builder("giveaway.giveaways.active", this, GiveawayService::countActiveGiveaways)
+                .description("Number of giveaways accepting entries")
+                .register(Metrics.globalRegistry);
     }
 
     @Transactional(propagation = Propagation.REQUIRED)
     public void createGiveaway(GiveawayEntity giveaway) {
         LOGGER.info("Creating giveaway: {}", giveaway);
         giveawayRepository.save(giveaway);
+        updateActiveIndex(giveaway);
     }
 
     @Transactional(propagation = Propagation.REQUIRED, readOnly = true, noRollbackFor = Exception.class)
     public GiveawayEntity getGiveawayByMessageId(Long messageId) {
-        GiveawayEntity giveaway = giveawayRepository.findByMessageId(messageId)
+        return giveawayRepository.findByMessageId(messageId)
                 .orElseGet(() -> {
                     LOGGER.warn("No giveaway found with message ID: {}", messageId);
                     return null;
                 });
-        if (giveaway != null) {
-            giveaway.getEntries().size(); // Initialize the collection
-        }
-        return giveaway;
+    }
+
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = true, noRollbackFor = Exception.class)
+    public GiveawayEntity getGiveawayById(Long id) {
+        return giveawayRepository.findById(id)
+                .orElseGet(() -> {
+                    LOGGER.warn("No giveaway found with ID: {}", id);
+                    return null;
+                });
     }
 
     @Transactional(propagation = Propagation.REQUIRED, readOnly = true, noRollbackFor = Exception.class)
     public GiveawayEntity getGiveawayByTitleAndGuildId(String title, Long guildId) {
-        GiveawayEntity giveaway = giveawayRepository.findByTitleAndGuildId(title, guildId)
+        return giveawayRepository.findByTitleAndGuildId(title, guildId)
                 .orElseGet(() -> {
                     LOGGER.warn("No giveaway found with title: {} in guild: {}", title, guildId);
                     return null;
                 });
-        if (giveaway != null) {
-            giveaway.getEntries().size(); // Initialize the collection
-        }
-        return giveaway;
+    }
+
+    // Checks the unique (title, guild_id) key without loading the giveaway
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = true, noRollbackFor = Exception.class)
+    public boolean isTitleTaken(String title, Long guildId) {
+        return giveawayRepository.existsByTitleAndGuildId(title, guildId);
     }
 
     @Transactional(propagation = Propagation.REQUIRED, readOnly = true, noRollbackFor = Exception.class)
     public List<GiveawayEntity> getAllGiveaways() {
         List<GiveawayEntity> giveaways = giveawayRepository.findAll();
-        for (GiveawayEntity giveaway : giveaways) {
-            giveaway.getEntries().size(); // Initialize the collection
-        }
         if (giveaways.isEmpty()) {
             LOGGER.warn("No giveaways found.");
         }
         return giveaways;
     }
 
+    // Returns the next page of giveaways that have not ended
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = true, noRollbackFor = Exception.class)
+    public List<GiveawayEntity> getUnfinishedGiveaways(Long afterId, int pageSize) {
+        return giveawayRepository.findPageByStatusNot(GiveawayStatus.ENDED, afterId, PageRequest.of(0, pageSize));
+    }
+
+    @Transactional(propagation = Propagation.REQUIRED)
+    public void markGiveawayEnded(Long giveawayId) {
+        if (giveawayRepository.updateStatus(giveawayId, GiveawayStatus.ENDED) == 0) {
+            LOGGER.warn("Cannot mark as ended. No giveaway found with ID: {}", giveawayId);
+        }
+        activeGiveawayIndex.removeGiveaway(giveawayId);
+        scheduleSnapshot.remove(giveawayId);
+        giveawayLeaseService.release(giveawayId);
+    }
+
+    /**
+     * Claims the giveaway and draws and stores its winners in one transaction, so a crash can never leave half of them stored.
+     * A giveaway that was drawn before but not announced (DRAWING) returns its stored winners instead of being drawn again.
+     * Pending entries must be flushed before.
+     *
+     * @param giveawayId The ID of the giveaway
+     * @return The drawn winners, or null if the giveaway does not exist, is planned, has ended or was claimed by someone else
+     */
+    @Transactional(propagation = Propagation.REQUIRED)
+    public DrawResult drawWinners(Long giveawayId) {
+        GiveawayEntity giveaway = giveawayRepository.findById(giveawayId).orElse(null);
+        if (giveaway == null) {
+            LOGGER.warn("Cannot draw winners. No giveaway found with ID: {}", giveawayId);
+            return null;
+        }
+
+        if (giveaway.getStatus() == GiveawayStatus.DRAWING) {
+            List<Long> winnerIds = winnerService.getWinnersByGiveawayMessageIdAndGuildId(giveaway.getMessageId(), giveaway.getGuildId())
+                    .stream()
+                    .map(WinnerEntity::getUserId)
+                    .toList();
+            LOGGER.info("Winners of giveaway {} were already drawn, announcing them again.", giveaway.getTitle());
+            return new DrawResult(giveaway, winnerIds, -1);
+        }
+
+        // The conditional update is the claim: only one caller moves the giveaway out of ACTIVE
+        if (giveaway.getStatus() == GiveawayStatus.PLANNED || giveaway.getStatus() == GiveawayStatus.ENDED
+                || giveawayRepository.claimForDrawing(giveawayId) == 0) {
+            LOGGER.info("Giveaway {} is not active anymore, skipping the draw.", giveaway.getTitle());
+            return null;
+        }
+        // Reactions stop being routed to the giveaway once the claim is committed. If the draw rolls back,
+        // the giveaway is ACTIVE again and must keep accepting entries
+        afterCommit(() -> activeGiveawayIndex.remove(giveaway.getMessageId()));
+
+        // Only the entry count and the drawn rows are read, both from the same snapshot of the transaction
+        int entryCount = (int) giveawayEntryRepository.countByGiveawayId(giveawayId);
+        int[] offsets = FairRandomizer.drawIndices(entryCount, giveaway.getNumberOfWinners());
+        List<Long> winnerIds = Arrays.stream(giveawayEntryRepository.findUserIdsAtOffsets(giveawayId, offsets)).boxed().toList();
+        winnerService.addWinners(winnerIds.stream()
+                .map(userId -> new WinnerEntity(giveaway.getTitle(), giveaway.getMessageId(), userId, giveaway.getGuildId()))
+                .toList());
+        LOGGER.info("Drew {} winners out of {} entries for giveaway {}", winnerIds.size(), entryCount, giveaway.getTitle());
+        return new DrawResult(giveaway, winnerIds, entryCount);
+    }
+
     @Transactional(propagation = Propagation.REQUIRED)
     public void deleteGiveaway(Long id) {
         if (giveawayRepository.existsById(id)) {
+            entryBufferService.discard(id);
+            giveawayEntryRepository.deleteByGiveawayId(id);
             giveawayRepository.deleteById(id);
+            activeGiveawayIndex.removeGiveaway(id);
+            scheduleSnapshot.remove(id);
+            giveawayLeaseService.release(id);
             LOGGER.info("Deleted giveaway with ID: {}", id);
         } else {
             LOGGER.warn("No giveaway found with ID: {}", id);
         }
     }
 
+    // Returns false if the giveaway was modified or deleted since this copy was read (e.g. it was drawn meanwhile),
+    // the newer state wins. A conditional update, a failing versioned save would mark the transaction rollback-only
     @Transactional(propagation = Propagation.REQUIRED)
-    public void updateGiveaway(GiveawayEntity giveaway) {
-        if (giveaway == null || !giveawayRepository.existsById(giveaway.getId())) {
+    public boolean updateGiveaway(GiveawayEntity giveaway) {
+        if (giveaway == null || giveaway.getId() == null) {
             LOGGER.warn("Cannot update. Giveaway not found or null: {}", giveaway);
-            return;
+            return false;
         }
-        giveawayRepository.save(giveaway);
+        int updated = giveawayRepository.updateIfVersion(giveaway.getId(), giveaway.getVersion(),
+                giveaway.hasMessage() ? giveaway.getMessageId() : null, giveaway.getTitle(), giveaway.getPrize(),
+                giveaway.getNumberOfWinners(), giveaway.getDuration(), giveaway.getChannelId(), giveaway.getStartTime(),
+                giveaway.getStatus(), giveaway.getReminderSchedule());
+        if (updated == 0) {
+            LOGGER.warn("Cannot update. Giveaway {} was modified concurrently or deleted.", giveaway.getId());
+            return false;
+        }
+        giveaway.setVersion(giveaway.getVersion() + 1);
+        updateActiveIndex(giveaway);
         LOGGER.info("Updated giveaway: {}", giveaway);
+        return true;
+    }
+
+    // Answered from the ActiveGiveawayIndex, no query
+    public boolean isAcceptingEntries(long messageId) {
+        return activeGiveawayIndex.get(messageId) != ActiveGiveawayIndex.NO_GIVEAWAY;
     }
 
     @Transactional(propagation = Propagation.REQUIRED, readOnly = true, noRollbackFor = Exception.class)
-    public List<Long> getGiveawayEntries(Long giveawayId) {
-        GiveawayEntity giveaway = giveawayRepository.findById(giveawayId)
-                .orElseGet(() -> {
-                    LOGGER.warn("No giveaway found with ID: {}", giveawayId);
-                    return null;
-                });
-        if (giveaway != null) {
-            giveaway.getEntries().size(); // Initialize the collection
+    public EntrySet getGiveawayEntries(Long giveawayId) {
+        return giveawayEntryRepository.findEntrySetByGiveawayId(giveawayId);
+    }
+
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = true, noRollbackFor = Exception.class)
+    public long countActiveGiveaways() {
+        return giveawayRepository.countActive();
+    }
+
+    // Only active giveaways whose message was sent accept entries (planned giveaways have no message yet)
+    private void updateActiveIndex(GiveawayEntity giveaway) {
+        if (giveaway.getId() == null) {
+            return;
+        }
+        if (giveaway.getStatus() == null || giveaway.getStatus() == GiveawayStatus.ACTIVE) {
+            activeGiveawayIndex.put(giveaway.getMessageId(), giveaway.getId());
+        } else {
+            activeGiveawayIndex.remove(giveaway.getMessageId());
         }
-        return giveaway != null ? giveaway.getEntries() : null;
     }
-}
 
+    // Runs the action once the current transaction has committed, or right away outside of a transaction
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    // Called once the end of the giveaway is scheduled on this instance, so that a restart can schedule it before reading the database
+    public void checkpointScheduled(GiveawayEntity giveaway) {
+        scheduleSnapshot.put(giveaway);
+    }
+
+    // The giveaways whose end was scheduled on this instance before the restart, as stored in the snapshot
+    public List<GiveawayEntity> getCheckpointedGiveaways() {
+        return scheduleSnapshot.getGiveaways();
+    }
+
+    // Drops a checkpointed giveaway that the database does not know as unfinished anymore
+    public void discardCheckpoint(Long giveawayId) {
+        scheduleSnapshot.remove(giveawayId);
+    }
+
+    // Returns true if this instance owns the giveaway and may schedule its tasks, never for a guild on a shard of another instance
+    public boolean acquireLease(GiveawayEntity giveaway) {
+        return giveawayLeaseService.tryAcquire(giveaway.getId(), giveaway.getGuildId());
+    }
+
+    // Returns true if this instance still owns the giveaway, checked when its end fires
+    public boolean ownsLease(Long giveawayId) {
+        return giveawayLeaseService.isOwner(giveawayId);
+    }
+
+    // Writes the buffered entries of the giveaway to the database (not transactional on purpose, the flush commits on its own)
+    public void flushPendingEntries(Long giveawayId) {
+        entryBufferService.flush(giveawayId);
+    }
+
+    // Drops the in-memory entry state of the giveaway once its winners have been drawn.
+    // Reactions buffered between the flush before the draw and the claim are written first, they are never thrown away
+    public void releaseEntryBuffer(Long giveawayId) {
+        entryBufferService.flush(giveawayId);
+        entryBufferService.discard(giveawayId);
+    }
+}
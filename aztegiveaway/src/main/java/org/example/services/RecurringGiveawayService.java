@@ -0,0 +1,153 @@
+/**
+ * Service class for the templates of the recurring giveaways.
+ * A template stores the time its next instance starts. When that time has come, the instance is created as a planned giveaway
+ * and the next fire time is computed from the cron expression, starting from now: the occurrences that were missed
+ * while the bot was down are not replayed one by one, a template that was due only creates one instance.
+ * Creating an instance and moving the template to its next fire time is one transaction guarded by a conditional update,
+ * so with several instances of the bot every fire time creates exactly one giveaway.
+ * An instance skips to the next free number when a giveaway with its title already exists in the guild.
+ */
+
+package org.example.services;
+
+import org.example.entities.GiveawayEntity;
+import org.example.entities.GiveawayStatus;
+import org.example.entities.RecurringGiveawayEntity;
+import org.example.repositories.RecurringGiveawayRepository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+@Service
+public class RecurringGiveawayService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RecurringGiveawayService.class);
+
+    private final RecurringGiveawayRepository recurringGiveawayRepository;
+    private final GiveawayService giveawayService;
+
+    @Autowired
+    public RecurringGiveawayService(RecurringGiveawayRepository recurringGiveawayRepository, GiveawayService giveawayService) {
+        this.recurringGiveawayRepository = recurringGiveawayRepository;
+        this.giveawayService = giveawayService;
+    }
+
+    /**
+     * Normalizes a cron expression. The 5 fields of a classic cron (minute hour day-of-month month day-of-week)
+     * are accepted as well, the seconds are then 0
+     *
+     * @param cron The cron expression, e.g. "0 18 * * MON" or "0 0 18 * * MON"
+     * @return The Spring cron expression, or null if it is invalid
+     */
+    public static String normalizeCron(String cron) {
+        if (cron == null || cron.isBlank()) {
+            return null;
+        }
+        String normalized = cron.trim().replaceAll("\\s+", " ");
+        if (!normalized.startsWith("@") && normalized.split(" ").length == 5) {
+            normalized = "0 " + normalized;
+        }
+        return CronExpression.isValidExpression(normalized) ? normalized : null;
+    }
+
+    // Returns null if the zone is unknown
+    public static ZoneId parseZone(String zone) {
+        try {
+            return ZoneId.of(zone.trim());
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    // The first fire time strictly after the given time, or null if the expression never fires again
+    public static Instant nextFireTime(String cron, String zone, Instant after) {
+        ZonedDateTime next = CronExpression.parse(cron).next(ZonedDateTime.ofInstant(after, ZoneId.of(zone)));
+        return next != null ? next.toInstant() : null;
+    }
+
+    @Transactional(propagation = Propagation.REQUIRED)
+    public void createTemplate(RecurringGiveawayEntity template) {
+        LOGGER.info("Creating recurring giveaway {} ({} {}), first at {}", template.getTitle(), template.getCron(), template.getZone(), template.getNextFireTime());
+        recurringGiveawayRepository.save(template);
+    }
+
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = true, noRollbackFor = Exception.class)
+    public RecurringGiveawayEntity getTemplateByTitleAndGuildId(String title, Long guildId) {
+        return recurringGiveawayRepository.findByTitleAndGuildId(title, guildId).orElse(null);
+    }
+
+    // The giveaways already created from the template are not affected
+    @Transactional(propagation = Propagation.REQUIRED)
+    public void deleteTemplate(Long id) {
+        recurringGiveawayRepository.deleteById(id);
+        LOGGER.info("Deleted recurring giveaway with ID: {}", id);
+    }
+
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = true, noRollbackFor = Exception.class)
+    public Instant getEarliestNextFireTime() {
+        return recurringGiveawayRepository.findEarliestNextFireTime().orElse(null);
+    }
+
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = true, noRollbackFor = Exception.class)
+    public List<RecurringGiveawayEntity> getDueTemplates(Instant now, int limit) {
+        return recurringGiveawayRepository.findDue(now, PageRequest.of(0, limit));
+    }
+
+    /**
+     * Creates the planned giveaway of a due template and moves the template to its next fire time
+     *
+     * @param template The due template, as read by getDueTemplates
+     * @param now      The current time, the giveaway starts now and the next fire time is the first one after it
+     * @return The planned giveaway, or null if another instance of the bot created it already
+     */
+    @Transactional(propagation = Propagation.REQUIRED)
+    public GiveawayEntity createInstance(RecurringGiveawayEntity template, Instant now) {
+        Instant next = nextFireTime(template.getCron(), template.getZone(), now);
+        // The expression may not fire anymore (e.g. only on a date that does not come again): the template is deleted,
+        // but the occurrence that is due now is still created below, it is the last one
+        int claimed = next != null
+                ? recurringGiveawayRepository.advance(template.getId(), template.getNextFireTime(), next)
+                : recurringGiveawayRepository.deleteIfDue(template.getId(), template.getNextFireTime());
+        if (claimed == 0) {
+            LOGGER.info("Recurring giveaway {} was already created for {}.", template.getTitle(), template.getNextFireTime());
+            return null;
+        }
+        if (next == null) {
+            LOGGER.info("Recurring giveaway {} does not fire anymore, deleted it after its last giveaway.", template.getTitle());
+        }
+
+        // The title of a giveaway is unique in its guild. A giveaway created by hand may already hold the number
+        // of this occurrence, the next free number is used then, otherwise the template would stay due forever
+        int number = template.getOccurrences() + 1;
+        while (giveawayService.isTitleTaken(template.getTitle() + " #" + number, template.getGuildId())) {
+            number++;
+        }
+
+        GiveawayEntity giveaway = new GiveawayEntity();
+        giveaway.setTitle(template.getTitle() + " #" + number);
+        giveaway.setPrize(template.getPrize());
+        giveaway.setNumberOfWinners(template.getNumberOfWinners());
+        giveaway.setDuration(template.getDuration());
+        giveaway.setChannelId(template.getChannelId());
+        giveaway.setGuildId(template.getGuildId());
+        giveaway.setReminderSchedule(template.getReminderSchedule());
+        giveaway.setStartTime(now);
+        giveaway.setStatus(GiveawayStatus.PLANNED);
+        giveawayService.createGiveaway(giveaway);
+        LOGGER.info("Created giveaway {} from its recurring template, next one at {}", giveaway.getTitle(), next);
+        return giveaway;
+    }
+}
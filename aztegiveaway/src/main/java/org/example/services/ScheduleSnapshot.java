@@ -0,0 +1,222 @@
+/**
+ * Local checkpoint of the giveaways whose end is scheduled on this instance, so that a restart can schedule them again
+ * before the database was read (see RescheduleUtil).
+ * The file is an append-only log of small binary records: one when the end of a giveaway is scheduled (everything needed
+ * to schedule its end and reminders again) and one when it ended or was deleted. Appending a record is one buffered write,
+ * nothing is rewritten. At startup the log is replayed into memory (a few milliseconds for thousands of giveaways)
+ * and compacted into a new file holding only the live records, which replaces the old one atomically.
+ * A record cut off by a crash is ignored. The database stays the source of truth, the restored giveaways are reconciled with it.
+ * Without a path (giveaway.snapshot.path empty) or if the file cannot be written, the snapshot is disabled.
+ */
+
+package org.example.services;
+
+import org.example.entities.GiveawayEntity;
+import org.example.entities.GiveawayStatus;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class ScheduleSnapshot {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScheduleSnapshot.class);
+
+    private static final int MAGIC = 0x4753_4E31; // "GSN1", changes with the record format
+    private static final byte SCHEDULED = 1;
+    private static final byte REMOVED = 2;
+    private static final int COMPACTION_THRESHOLD = 10_000; // records appended before removed ones are dropped
+
+    // What is needed to schedule the end and the reminders of a giveaway without reading it from the database
+    private record Entry(long giveawayId, long messageId, long channelId, long guildId, long startMillis, long durationMillis,
+                         int numberOfWinners, String title, String reminderSchedule) {}
+
+    private final Path path;
+    private final Map<Long, Entry> entries = new LinkedHashMap<>();
+    private DataOutputStream output;
+    private int appendedRecords;
+
+    public ScheduleSnapshot(@Value("${giveaway.snapshot.path:}") String path) {
+        this.path = path == null || path.isBlank() ? null : Path.of(path);
+    }
+
+    // Replays the log and compacts it
+    @PostConstruct
+    public synchronized void load() {
+        if (path == null) {
+            LOGGER.info("Schedule snapshot is disabled.");
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (Files.exists(path)) {
+                replay();
+            }
+            compact();
+            LOGGER.info("Loaded {} giveaways from the schedule snapshot {} in {} ms", entries.size(), path, (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException e) {
+            LOGGER.warn("Schedule snapshot {} cannot be used, it is disabled: {}", path, e.getMessage());
+            entries.clear();
+            closeQuietly();
+        }
+    }
+
+    // Records that the end of the giveaway is scheduled on this instance
+    public synchronized void put(GiveawayEntity giveaway) {
+        if (output == null || giveaway.getId() == null || !giveaway.hasMessage()) {
+            return;
+        }
+
+        Entry entry = new Entry(giveaway.getId(), giveaway.getMessageId(), giveaway.getChannelId(), giveaway.getGuildId(),
+                giveaway.getStartTime().toEpochMilli(), giveaway.getDuration(), giveaway.getNumberOfWinners(),
+                giveaway.getTitle() != null ? giveaway.getTitle() : "",
+                giveaway.getReminderSchedule() != null ? giveaway.getReminderSchedule() : "");
+        if (entry.equals(entries.get(entry.giveawayId()))) {
+            return; // rescheduled without any change
+        }
+        entries.put(entry.giveawayId(), entry);
+        append(() -> writeEntry(output, entry));
+    }
+
+    // Records that the giveaway ended or was deleted
+    public synchronized void remove(long giveawayId) {
+        if (output == null || entries.remove(giveawayId) == null) {
+            return;
+        }
+        append(() -> {
+            output.writeByte(REMOVED);
+            output.writeLong(giveawayId);
+        });
+    }
+
+    // The checkpointed giveaways as ACTIVE giveaways, only holding the fields stored in the snapshot. They must never be saved
+    public synchronized List<GiveawayEntity> getGiveaways() {
+        List<GiveawayEntity> giveaways = new ArrayList<>(entries.size());
+        for (Entry entry : entries.values()) {
+            GiveawayEntity giveaway = new GiveawayEntity(entry.messageId(), entry.title(), null, entry.numberOfWinners(),
+                    entry.durationMillis(), entry.channelId(), entry.guildId());
+            giveaway.setId(entry.giveawayId());
+            giveaway.setStartTime(Instant.ofEpochMilli(entry.startMillis()));
+            giveaway.setReminderSchedule(entry.reminderSchedule().isEmpty() ? null : entry.reminderSchedule());
+            giveaway.setStatus(GiveawayStatus.ACTIVE);
+            giveaways.add(giveaway);
+        }
+        return giveaways;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        closeQuietly();
+    }
+
+    private void replay() throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (input.readInt() != MAGIC) {
+                LOGGER.warn("Schedule snapshot {} has an unknown format, starting from an empty one.", path);
+                return;
+            }
+            while (true) {
+                byte type = input.readByte();
+                if (type == SCHEDULED) {
+                    Entry entry = new Entry(input.readLong(), input.readLong(), input.readLong(), input.readLong(),
+                            input.readLong(), input.readLong(), input.readInt(), input.readUTF(), input.readUTF());
+                    entries.put(entry.giveawayId(), entry);
+                } else if (type == REMOVED) {
+                    entries.remove(input.readLong());
+                } else {
+                    LOGGER.warn("Schedule snapshot {} has an unknown record, ignoring the rest of it.", path);
+                    return;
+                }
+            }
+        } catch (EOFException e) {
+            // End of the log, or a record that was cut off by a crash
+        }
+    }
+
+    // Writes the live records into a new file that replaces the log, then appends to it
+    private void compact() throws IOException {
+        closeQuietly();
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path compacted = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try (DataOutputStream compactedOutput = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(compacted)))) {
+            compactedOutput.writeInt(MAGIC);
+            for (Entry entry : entries.values()) {
+                writeEntry(compactedOutput, entry);
+            }
+        }
+        Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path.toFile(), true)));
+        appendedRecords = 0;
+    }
+
+    private interface RecordWriter {
+        void write() throws IOException;
+    }
+
+    // The record is flushed to the file (the page cache), so it survives a restart of the process
+    private void append(RecordWriter writer) {
+        try {
+            writer.write();
+            output.flush();
+            if (++appendedRecords >= COMPACTION_THRESHOLD && appendedRecords > entries.size() * 2) {
+                compact();
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Failed to write the schedule snapshot {}, it is disabled: {}", path, e.getMessage());
+            closeQuietly();
+        }
+    }
+
+    private static void writeEntry(DataOutputStream output, Entry entry) throws IOException {
+        output.writeByte(SCHEDULED);
+        output.writeLong(entry.giveawayId());
+        output.writeLong(entry.messageId());
+        output.writeLong(entry.channelId());
+        output.writeLong(entry.guildId());
+        output.writeLong(entry.startMillis());
+        output.writeLong(entry.durationMillis());
+        output.writeInt(entry.numberOfWinners());
+        output.writeUTF(entry.title());
+        output.writeUTF(entry.reminderSchedule());
+    }
+
+    private void closeQuietly() {
+        if (output != null) {
+            try {
+                output.close();
+            } catch (IOException e) {
+                LOGGER.debug("Failed to close the schedule snapshot: {}", e.getMessage());
+            }
+            output = null;
+        }
+    }
+}
@@ -3,35 +3,50 @@ package org.example.services;
 import org.example.entities.WinnerEntity;
 import org.example.repositories.WinnerRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
-import java.util.Optional;
 
 @Service
 public class WinnerService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(WinnerService.class);
+    // Winners that already exist are skipped by the unique (giveaway_title, giveaway_message_id, guild_id, user_id) key
+    private static final String INSERT_WINNER_SQL =
+            "INSERT IGNORE INTO winners (giveaway_title, giveaway_message_id, guild_id, user_id) VALUES (?, ?, ?, ?)";
+
     private final WinnerRepository winnerRepository;
+    private final JdbcTemplate jdbcTemplate;
 
     @Autowired
-    public WinnerService(WinnerRepository winnerRepository) {
+    public WinnerService(WinnerRepository winnerRepository, JdbcTemplate jdbcTemplate) {
         this.winnerRepository = winnerRepository;
+        this.jdbcTemplate = jdbcTemplate;
     }
 
+    // Stores the winners with one batched insert, in the transaction of the caller if there is one
+    // Winners that are already stored are ignored by the insert, so they are not looked up first
     @Transactional
-    public void addWinner(WinnerEntity winner) {
-        Optional<WinnerEntity> existingWinner = winnerRepository.findByGiveawayMessageIdAndUserIdAndGuildId(
-                winner.getGiveawayMessageId(), winner.getUserId(), winner.getGuildId());
-        if (existingWinner.isPresent()) {
-            LOGGER.warn("Winner already exists: {}", existingWinner.get());
-        } else {
-            winnerRepository.save(winner);
-            LOGGER.info("Added new winner: {}", winner);
+    public void addWinners(Collection<WinnerEntity> winners) {
+        if (winners.isEmpty()) {
+            return;
         }
+
+        jdbcTemplate.batchUpdate(INSERT_WINNER_SQL, winners, winners.size(), (statement, winner) -> {
+            statement.setString(1, winner.getGiveawayTitle());
+            statement.setLong(2, winner.getGiveawayMessageId());
+            statement.setLong(3, winner.getGuildId());
+            statement.setLong(4, winner.getUserId());
+        });
+        LOGGER.info("Stored {} winners", winners.size());
     }
 
     @Transactional(readOnly = true)
@@ -39,9 +54,23 @@ public class WinnerService {
         return winnerRepository.findByGiveawayMessageIdAndGuildId(giveawayMessageId, guildId);
     }
 
+    // Page of the winners of the guild that come after the given winner ID, use 0 for the first page
+    @Transactional(readOnly = true)
+    public List<WinnerEntity> getWinnersPageAfter(Long guildId, Long afterId, int pageSize) {
+        return winnerRepository.findPageAfter(guildId, afterId, PageRequest.of(0, pageSize));
+    }
+
+    // Page of the winners of the guild that come before the given winner ID, ordered by ID
+    @Transactional(readOnly = true)
+    public List<WinnerEntity> getWinnersPageBefore(Long guildId, Long beforeId, int pageSize) {
+        List<WinnerEntity> page = new ArrayList<>(winnerRepository.findPageBefore(guildId, beforeId, PageRequest.of(0, pageSize)));
+        Collections.reverse(page);
+        return page;
+    }
+
     @Transactional(readOnly = true)
-    public List<WinnerEntity> getWinnersByGuildId(Long guildId) {
-        return winnerRepository.findByGuildId(guildId);
+    public long countWinnersByGuildId(Long guildId) {
+        return winnerRepository.countByGuildId(guildId);
     }
 
     @Transactional
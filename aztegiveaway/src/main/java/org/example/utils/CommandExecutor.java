@@ -0,0 +1,195 @@
+/**
+ * Runs the slash command handlers outside of the JDA event thread.
+ * The handlers make blocking database calls, running them on the event thread would stall every other event of the shard
+ * (reactions included) and could miss the 3 seconds Discord gives to acknowledge an interaction.
+ * Commands are acknowledged with deferReply right away and then executed on a bounded pool.
+ * Each guild may only run a limited number of commands at the same time, further commands are answered with a busy message.
+ * Page buttons are run on the same pool (see PaginationRouter), a page is read from the database as well.
+ * The queue depth, the time spent waiting in the queue and the execution time per subcommand are exposed as metrics.
+ */
+
+package org.example.utils;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+@Component
+public class CommandExecutor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CommandExecutor.class);
+
+    private final ThreadPoolExecutor executor;
+    private final LocalizationUtil localizationUtil;
+    private final int perGuildLimit;
+
+    // guild ID -> permits for the commands of that guild that are queued or running
+    private final Map<Long, Semaphore> guildPermits = new ConcurrentHashMap<>();
+
+    @Autowired
+    public CommandExecutor(LocalizationUtil localizationUtil,
+                           @Value("${giveaway.commands.threads:8}") int threads,
+                           @Value("${giveaway.commands.queue-capacity:200}") int queueCapacity,
+                           @Value("${giveaway.commands.per-guild-limit:2}") int perGuildLimit) {
+        this.localizationUtil = localizationUtil;
+        this.perGuildLimit = perGuildLimit;
+
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "slash-command-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("giveaway.commands.queue.depth", executor, pool -> pool.getQueue().size())
+                .description("Number of slash commands waiting for a thread")
+                .register(Metrics.globalRegistry);
+    }
+
+    /**
+     * Defers the reply of the command and runs the handler on the command pool
+     *
+     * @param event          The slash command event, the guild must not be null
+     * @param subcommandName The subcommand name, used as metric tag
+     * @param ephemeral      Whether the deferred reply is only visible to the user
+     * @param handler        The command handler, it must answer through ReplyUtil
+     */
+    public void execute(SlashCommandInteractionEvent event, String subcommandName, boolean ephemeral, Consumer<SlashCommandInteractionEvent> handler) {
+        Long guildId = event.getGuild().getIdLong();
+        Semaphore permits = guildPermits.computeIfAbsent(guildId, id -> new Semaphore(perGuildLimit));
+        if (!permits.tryAcquire()) {
+            reject(event, subcommandName, guildId, "guild_limit");
+            return;
+        }
+
+        ReplyUtil.defer(event, ephemeral);
+        long queuedAtNanos = System.nanoTime();
+        try {
+            executor.execute(() -> run(event, subcommandName, handler, queuedAtNanos, permits));
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            reject(event, subcommandName, guildId, "queue_full");
+        }
+    }
+
+    /**
+     * Runs a component handler (e.g. a page button) on the command pool, under the same per-guild limit as the commands
+     *
+     * @param guildId The guild of the interaction
+     * @param name    The handler name, used as metric tag
+     * @param handler The handler, the interaction must be acknowledged before
+     * @return false if the guild or the pool is busy, the handler is then not run
+     */
+    public boolean execute(long guildId, String name, Runnable handler) {
+        Semaphore permits = guildPermits.computeIfAbsent(guildId, id -> new Semaphore(perGuildLimit));
+        if (!permits.tryAcquire()) {
+            countRejected(name, guildId, "guild_limit");
+            return false;
+        }
+
+        long queuedAtNanos = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                long startedAtNanos = recordQueueWait(name, queuedAtNanos);
+                String outcome = "success";
+                try {
+                    handler.run();
+                } catch (Exception e) {
+                    outcome = "error";
+                    LOGGER.error("Handler {} failed: ", name, e);
+                } finally {
+                    permits.release();
+                    recordExecution(name, outcome, startedAtNanos);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            countRejected(name, guildId, "queue_full");
+            return false;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private void run(SlashCommandInteractionEvent event, String subcommandName, Consumer<SlashCommandInteractionEvent> handler,
+                     long queuedAtNanos, Semaphore permits) {
+        long startedAtNanos = recordQueueWait(subcommandName, queuedAtNanos);
+
+        String outcome = "success";
+        try {
+            handler.accept(event);
+        } catch (Exception e) {
+            outcome = "error";
+            LOGGER.error("Slash command {} failed: ", subcommandName, e);
+            ReplyUtil.reply(event, localizationUtil.getLocalizedMessage(event.getGuild().getIdLong(), "command_failed"), true);
+        } finally {
+            permits.release();
+            // A handler that returned without answering would leave the "thinking..." message forever
+            if (ReplyUtil.release(event)) {
+                event.getHook().deleteOriginal().queue();
+            }
+            recordExecution(subcommandName, outcome, startedAtNanos);
+        }
+    }
+
+    // Returns the time the handler started
+    private static long recordQueueWait(String subcommandName, long queuedAtNanos) {
+        long startedAtNanos = System.nanoTime();
+        Timer.builder("giveaway.commands.queue.wait")
+                .tag("subcommand", subcommandName)
+                .description("Time a slash command waited for a thread")
+                .register(Metrics.globalRegistry)
+                .record(startedAtNanos - queuedAtNanos, TimeUnit.NANOSECONDS);
+        return startedAtNanos;
+    }
+
+    private static void recordExecution(String subcommandName, String outcome, long startedAtNanos) {
+        Timer.builder("giveaway.commands.execution")
+                .tag("subcommand", subcommandName)
+                .tag("outcome", outcome)
+                .description("Time spent running a slash command handler")
+                .register(Metrics.globalRegistry)
+                .record(System.nanoTime() - startedAtNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void reject(SlashCommandInteractionEvent event, String subcommandName, Long guildId, String reason) {
+        countRejected(subcommandName, guildId, reason);
+        ReplyUtil.reply(event, localizationUtil.getLocalizedMessage(guildId, "command_busy"), true);
+    }
+
+    private static void countRejected(String subcommandName, long guildId, String reason) {
+        LOGGER.warn("Rejected {} for guild {}: {}", subcommandName, guildId, reason);
+        Counter.builder("giveaway.commands.rejected")
+                .tag("subcommand", subcommandName)
+                .tag("reason", reason)
+                .description("Slash commands and buttons rejected because the guild or the pool was busy")
+                .register(Metrics.globalRegistry)
+                .increment();
+    }
+}
@@ -1,6 +1,7 @@
 /**
  * EmbedUtil class that handles the creation of embeds for the giveaway messages.
  * The createGiveawayEmbed method creates an embed for the giveaway message with the provided details.
+ * The createPageEmbed method renders a single page of a paginated list.
  */
 
 package org.example.utils;
@@ -13,7 +14,6 @@ import java.time.Instant;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
 import java.util.List;
 
 @Component
@@ -47,29 +47,19 @@ public class EmbedUtil {
         return embedBuilder;
     }
 
-    // Create a list of paginated embeds (used to display all the winners of all the giveaways in a paginated way)
-    public static List<EmbedBuilder> createPaginatedEmbeds(List<String> messages, int itemsPerPage) {
-        List<EmbedBuilder> embeds = new ArrayList<>();
-        int totalPages = (int) Math.ceil((double) messages.size() / itemsPerPage);
-
-        for (int i = 0; i < totalPages; i++) {
-            int start = i * itemsPerPage;
-            int end = Math.min(start + itemsPerPage, messages.size());
-
-            EmbedBuilder embedBuilder = new EmbedBuilder();
-            embedBuilder
-                    .setTitle(" (Page " + (i + 1) + "/" + totalPages + ")")
-                    .setColor(Color.RED);
-
-            StringBuilder pageContent = new StringBuilder();
-            for (int j = start; j < end; j++) {
-                pageContent.append(messages.get(j)).append("\n");
-            }
+    // Create the embed of a single page, pageIndex starts at 0
+    public static EmbedBuilder createPageEmbed(List<String> pageMessages, int pageIndex, int totalPages) {
+        EmbedBuilder embedBuilder = new EmbedBuilder();
+        embedBuilder
+                .setTitle(" (Page " + (pageIndex + 1) + "/" + totalPages + ")")
+                .setColor(Color.RED);
 
-            embedBuilder.setDescription(pageContent.toString());
-            embeds.add(embedBuilder);
+        StringBuilder pageContent = new StringBuilder();
+        for (String message : pageMessages) {
+            pageContent.append(message).append("\n");
         }
 
-        return embeds;
+        embedBuilder.setDescription(pageContent.toString());
+        return embedBuilder;
     }
 }
@@ -0,0 +1,141 @@
+/**
+ * Immutable set of the user IDs that entered a giveaway, stored as a sorted array of primitive longs.
+ * A boxed List<Long> costs about 24 bytes per entry plus the reference, this costs 8 bytes per entry,
+ * so the entries of a 500k users giveaway take 4 MB instead of tens of MB.
+ * Membership is a binary search, the draw picks indices of the array (see FairRandomizer).
+ * A draw that excludes users does not copy the remaining entries at all: the k-th eligible entry is found from the
+ * positions of the excluded users, so its cost depends on the number of winners and excluded users, not on the entries.
+ */
+
+package org.example.utils;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+public final class EntrySet {
+
+    private static final EntrySet EMPTY = new EntrySet(new long[0]);
+
+    // Sorted ascending, without duplicates, exactly as long as the set
+    private final long[] userIds;
+
+    private EntrySet(long[] userIds) {
+        this.userIds = userIds;
+    }
+
+    public static EntrySet empty() {
+        return EMPTY;
+    }
+
+    // Copies, sorts and deduplicates the given user IDs
+    public static EntrySet of(long... userIds) {
+        long[] sorted = userIds.clone();
+        Arrays.sort(sorted);
+        return new EntrySet(distinct(sorted, sorted.length));
+    }
+
+    public static EntrySet of(Collection<Long> userIds) {
+        long[] values = new long[userIds.size()];
+        int i = 0;
+        for (Long userId : userIds) {
+            values[i++] = userId;
+        }
+        Arrays.sort(values);
+        return new EntrySet(distinct(values, values.length));
+    }
+
+    /**
+     * Wraps the first size values of an array that is already sorted (e.g. read in primary key order), without sorting it again.
+     * The array must not be modified afterwards.
+     */
+    public static EntrySet ofSorted(long[] sortedUserIds, int size) {
+        if (size == 0) {
+            return EMPTY;
+        }
+        return new EntrySet(distinct(sortedUserIds, size));
+    }
+
+    public int size() {
+        return userIds.length;
+    }
+
+    public boolean isEmpty() {
+        return userIds.length == 0;
+    }
+
+    public boolean contains(long userId) {
+        return Arrays.binarySearch(userIds, userId) >= 0;
+    }
+
+    // The user ID at the given position, in ascending order
+    public long get(int index) {
+        return userIds[index];
+    }
+
+    // Draws min(numberOfWinners, size) distinct winners in random order
+    public long[] draw(int numberOfWinners) {
+        return FairRandomizer.selectWinners(userIds, numberOfWinners);
+    }
+
+    /**
+     * Draws winners among the entries that are not in the excluded set, without building the set of eligible entries.
+     * Distinct ranks are drawn in [0, eligible entries) and mapped to the array index of the entry with that rank,
+     * skipping the positions of the excluded entries. Time and memory are O(winners * excluded + excluded * log(size)).
+     *
+     * @param numberOfWinners The number of winners to draw
+     * @param excluded        The users that cannot win (e.g. the previous winners), usually a handful
+     * @return min(numberOfWinners, eligible entries) distinct winners in random order, empty if nobody is eligible
+     */
+    public long[] drawExcluding(int numberOfWinners, EntrySet excluded) {
+        int[] excludedPositions = positionsOf(excluded);
+        int eligible = userIds.length - excludedPositions.length;
+        if (eligible == 0 || numberOfWinners <= 0) {
+            return new long[0];
+        }
+
+        int[] ranks = FairRandomizer.drawIndices(eligible, numberOfWinners);
+        long[] winners = new long[ranks.length];
+        for (int i = 0; i < ranks.length; i++) {
+            int index = ranks[i];
+            // Every excluded position at or before the index shifts the entry of this rank one further
+            for (int position : excludedPositions) {
+                if (position > index) {
+                    break;
+                }
+                index++;
+            }
+            winners[i] = userIds[index];
+        }
+        return winners;
+    }
+
+    // Boxes the entries, only meant for small sets (e.g. the winners)
+    public List<Long> toList() {
+        return Arrays.stream(userIds).boxed().toList();
+    }
+
+    // Ascending array indices of the given users that are in this set
+    private int[] positionsOf(EntrySet users) {
+        int[] positions = new int[users.userIds.length];
+        int count = 0;
+        for (long userId : users.userIds) {
+            int position = Arrays.binarySearch(userIds, userId);
+            if (position >= 0) {
+                positions[count++] = position;
+            }
+        }
+        return count == positions.length ? positions : Arrays.copyOf(positions, count);
+    }
+
+    // Drops repeated values of a sorted array and trims it to the number of distinct values
+    private static long[] distinct(long[] sorted, int size) {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (count == 0 || sorted[count - 1] != sorted[i]) {
+                sorted[count++] = sorted[i];
+            }
+        }
+        return count == sorted.length ? sorted : Arrays.copyOf(sorted, count);
+    }
+}
@@ -1,6 +1,9 @@
 /**
  * This class is used to randomly select winners from a list of entries.
  * It uses a secure random number generator to ensure fairness.
+ * Winners are drawn with a partial Fisher-Yates shuffle: only as many random numbers as winners are needed,
+ * and the swaps are kept in a small map so the entries given by the caller are never modified.
+ * Every method returns a new list/array that holds only the winners.
  */
 
 package org.example.utils;
@@ -9,28 +12,89 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.security.SecureRandom;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
 
 public class FairRandomizer {
     private static final SecureRandom SECURE_RANDOM = new SecureRandom();
     private static final Logger LOGGER = LoggerFactory.getLogger(FairRandomizer.class);
 
     /**
-     * Shuffles the list of entries and selects a specified number of winners
+     * Selects a specified number of winners from the list of entries without modifying the list
      *
      * @param entries         The list of entries (participants) to select winners from
      * @param numberOfWinners The number of winners to select
      * @param <T>             The type of entries in the list
-     * @return A list of selected winners
+     * @return A new list of selected winners
      */
     public static <T> List<T> selectWinners(List<T> entries, int numberOfWinners) {
         if (entries == null || entries.isEmpty() || numberOfWinners <= 0) {
-            LOGGER.warn("Invalid input for selecting winners. Entries: {}, Number of winners: {}", entries, numberOfWinners);
+            LOGGER.warn("Invalid input for selecting winners. Entries: {}, Number of winners: {}",
+                    entries == null ? null : entries.size(), numberOfWinners);
             return Collections.emptyList();
         }
 
-        Collections.shuffle(entries, SECURE_RANDOM);
-        return entries.subList(0, Math.min(numberOfWinners, entries.size()));
+        // Index based access is needed for the draw, linked lists are copied once
+        List<T> source = entries instanceof RandomAccess ? entries : new ArrayList<>(entries);
+        int[] indices = drawIndices(source.size(), numberOfWinners);
+
+        List<T> winners = new ArrayList<>(indices.length);
+        for (int index : indices) {
+            winners.add(source.get(index));
+        }
+        return winners;
+    }
+
+    /**
+     * Selects a specified number of winners from an array of user IDs without modifying the array
+     *
+     * @param entries         The user IDs (participants) to select winners from
+     * @param numberOfWinners The number of winners to select
+     * @return A new array of selected winners
+     */
+    public static long[] selectWinners(long[] entries, int numberOfWinners) {
+        if (entries == null || entries.length == 0 || numberOfWinners <= 0) {
+            LOGGER.warn("Invalid input for selecting winners. Entries: {}, Number of winners: {}",
+                    entries == null ? null : entries.length, numberOfWinners);
+            return new long[0];
+        }
+
+        int[] indices = drawIndices(entries.length, numberOfWinners);
+        long[] winners = new long[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            winners[i] = entries[indices[i]];
+        }
+        return winners;
+    }
+
+    /**
+     * Draws distinct random indices in [0, size) with a partial Fisher-Yates shuffle.
+     * Only the positions that were swapped are stored, so time and memory are O(numberOfWinners) instead of O(size).
+     *
+     * @param size            The number of entries
+     * @param numberOfWinners The number of indices to draw
+     * @return min(numberOfWinners, size) distinct indices in random order, none if either is not positive
+     */
+    public static int[] drawIndices(int size, int numberOfWinners) {
+        if (size <= 0 || numberOfWinners <= 0) {
+            return new int[0];
+        }
+
+        int count = Math.min(numberOfWinners, size);
+        int[] indices = new int[count];
+        Map<Integer, Integer> swapped = new HashMap<>(count * 2);
+
+        for (int i = 0; i < count; i++) {
+            int j = i + SECURE_RANDOM.nextInt(size - i);
+            int valueAtJ = swapped.getOrDefault(j, j);
+            int valueAtI = swapped.getOrDefault(i, i);
+            indices[i] = valueAtJ;
+            swapped.put(j, valueAtI);
+        }
+        return indices;
     }
 }
@@ -0,0 +1,185 @@
+/**
+ * Shared scheduler for every timed giveaway task: giveaway ends, reminders, planned starts and the recurring giveaways.
+ * A single timer thread keeps the pending tasks ordered by fire time and hands due tasks to a bounded worker pool,
+ * so the number of threads stays the same no matter how many giveaways are running.
+ * Tasks are registered under a type and a key (the message ID for ends and reminders, the giveaway ID for planned starts,
+ * 0 for the single task of the recurring giveaways)
+ * and can be cancelled by that key.
+ * The number of pending tasks and the lag of the last fired task are exposed as gauges.
+ */
+
+package org.example.utils;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class GiveawayScheduler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GiveawayScheduler.class);
+
+    public enum TaskType {
+        END,
+        REMINDER,
+        PLANNED_START,
+        RECURRING
+    }
+
+    private record TaskKey(TaskType type, long key) {}
+
+    // Only orders the tasks by fire time, the tasks themselves run on the worker pool
+    private final ScheduledThreadPoolExecutor timer;
+    private final ThreadPoolExecutor workers;
+
+    private final Map<TaskKey, Set<ScheduledTask>> tasks = new ConcurrentHashMap<>();
+    private final AtomicLong lastFiringLagMillis = new AtomicLong();
+
+    public GiveawayScheduler(@Value("${giveaway.scheduler.worker-threads:4}") int workerThreads,
+                             @Value("${giveaway.scheduler.queue-capacity:1000}") int queueCapacity) {
+        this.timer = new ScheduledThreadPoolExecutor(1, daemonThreadFactory("giveaway-scheduler"));
+        this.timer.setRemoveOnCancelPolicy(true);
+
+        // When the queue is full the timer thread runs the task itself, which slows down firing instead of dropping tasks
+        this.workers = new ThreadPoolExecutor(workerThreads, workerThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), daemonThreadFactory("giveaway-task"), new ThreadPoolExecutor.CallerRunsPolicy());
+
+        Gauge.builder("giveaway.scheduler.pending.tasks", this, GiveawayScheduler::getPendingTaskCount)
+                .description("Number of giveaway tasks waiting to fire")
+                .register(Metrics.globalRegistry);
+        Gauge.builder("giveaway.scheduler.firing.lag", this, GiveawayScheduler::getLastFiringLagMillis)
+                .description("Delay between the planned and the actual fire time of the last task")
+                .baseUnit("milliseconds")
+                .register(Metrics.globalRegistry);
+    }
+
+    public void schedule(TaskType type, long key, long delayMillis, Runnable action) {
+        long delay = Math.max(0, delayMillis);
+        ScheduledTask task = new ScheduledTask(new TaskKey(type, key), System.currentTimeMillis() + delay, action);
+
+        // Register before scheduling so that a task firing immediately can always unregister itself
+        tasks.compute(task.key, (taskKey, registered) -> {
+            Set<ScheduledTask> set = registered != null ? registered : ConcurrentHashMap.newKeySet();
+            set.add(task);
+            return set;
+        });
+        task.future = timer.schedule(task, delay, TimeUnit.MILLISECONDS);
+    }
+
+    // Cancels every pending task of the given type and key. Returns false if there was nothing to cancel
+    public boolean cancel(TaskType type, long key) {
+        Set<ScheduledTask> cancelled = tasks.remove(new TaskKey(type, key));
+        if (cancelled == null) {
+            return false;
+        }
+
+        cancelled.forEach(ScheduledTask::cancel);
+        return true;
+    }
+
+    // Runs the action on the worker pool right away, without registering it. Used to leave threads that must not block
+    // (e.g. JDA callbacks): the hand-off goes through the timer thread, so a full pool never runs it on the caller
+    public void execute(String description, Runnable action) {
+        timer.execute(() -> workers.execute(() -> {
+            try {
+                action.run();
+            } catch (Exception e) {
+                LOGGER.error("Task {} failed: ", description, e);
+            }
+        }));
+    }
+
+    public boolean isScheduled(TaskType type, long key) {
+        return tasks.containsKey(new TaskKey(type, key));
+    }
+
+    public int getPendingTaskCount() {
+        return timer.getQueue().size();
+    }
+
+    public long getLastFiringLagMillis() {
+        return lastFiringLagMillis.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+        workers.shutdown();
+        LOGGER.info("Giveaway scheduler stopped with {} pending tasks.", tasks.size());
+    }
+
+    private void unregister(ScheduledTask task) {
+        tasks.computeIfPresent(task.key, (taskKey, registered) -> {
+            registered.remove(task);
+            return registered.isEmpty() ? null : registered;
+        });
+    }
+
+    private static ThreadFactory daemonThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private final class ScheduledTask implements Runnable {
+        private final TaskKey key;
+        private final long fireAtMillis;
+        private final Runnable action;
+        private volatile ScheduledFuture<?> future;
+        private volatile boolean cancelled;
+
+        private ScheduledTask(TaskKey key, long fireAtMillis, Runnable action) {
+            this.key = key;
+            this.fireAtMillis = fireAtMillis;
+            this.action = action;
+        }
+
+        // Runs on the timer thread, the action itself is handed to the worker pool
+        @Override
+        public void run() {
+            if (cancelled) {
+                return;
+            }
+
+            lastFiringLagMillis.set(Math.max(0, System.currentTimeMillis() - fireAtMillis));
+            unregister(this);
+            workers.execute(() -> {
+                try {
+                    action.run();
+                } catch (Exception e) {
+                    LOGGER.error("Scheduled {} task for key {} failed: ", key.type(), key.key(), e);
+                }
+            });
+        }
+
+        private void cancel() {
+            cancelled = true;
+            ScheduledFuture<?> scheduled = future;
+            if (scheduled != null) {
+                scheduled.cancel(false);
+            }
+        }
+    }
+}
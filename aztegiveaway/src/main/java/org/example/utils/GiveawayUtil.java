@@ -1,63 +1,75 @@
 /**
  * Utility class to handle scheduling and ending giveaways.
- * It uses a Timer to schedule the end of a giveaway and the FairRandomizer to select the winners.
- * It also schedules reminders for the giveaway at 50% and 90% of the duration.
+ * It schedules the end and the reminders of a giveaway on the shared GiveawayScheduler and announces the winners.
  */
 
 package org.example.utils;
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
 import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
 import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.sharding.ShardManager;
+import net.dv8tion.jda.api.utils.MiscUtil;
 import org.example.entities.GiveawayEntity;
-import org.example.entities.WinnerEntity;
 import org.example.services.GiveawayService;
 import org.example.services.WinnerService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.time.Instant;
-import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 public class GiveawayUtil {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(GiveawayUtil.class);
 
-    // Map to store the timers for each giveaway
-    private static final Map<Long, Timer> giveawayTimers = new ConcurrentHashMap<>();
-
-    // Map to store reminder timers for each giveaway
-    private static final Map<Long, List<Timer>> reminderTimers = new ConcurrentHashMap<>();
-
     private static LocalizationUtil localizationUtil;
-    private static final int REMINDER_PERCENTAGE_50 = 50;
-    private static final int REMINDER_PERCENTAGE_90 = 90;
+    private final GiveawayScheduler giveawayScheduler;
+    private final MessageDispatcher messageDispatcher;
 
-    public GiveawayUtil(LocalizationUtil localizationUtil) {
+    private static final DistributionSummary ENTRY_POOL_SIZE = DistributionSummary.builder("giveaway.draw.entries")
+            .description("Number of entries the winners of a giveaway were drawn from")
+            .register(Metrics.globalRegistry);
+
+    public GiveawayUtil(LocalizationUtil localizationUtil, GiveawayScheduler giveawayScheduler, MessageDispatcher messageDispatcher) {
         GiveawayUtil.localizationUtil = localizationUtil;
+        this.giveawayScheduler = giveawayScheduler;
+        this.messageDispatcher = messageDispatcher;
     }
 
-    public void scheduleGiveawayEnd(final GiveawayEntity giveaway, JDA jda, GiveawayService giveawayService, WinnerService winnerService, long durationMillis) {
-        Timer timer = new Timer();
-        giveawayTimers.put(giveaway.getMessageId(), timer);
+    public void scheduleGiveawayEnd(final GiveawayEntity giveaway, ShardManager shardManager, GiveawayService giveawayService, WinnerService winnerService, long durationMillis) {
+        // Another instance owns the giveaway and schedules its tasks
+        if (!giveawayService.acquireLease(giveaway)) {
+            LOGGER.info("Giveaway {} is owned by another instance, not scheduling its end.", giveaway.getTitle());
+            return;
+        }
+
+        giveawayService.checkpointScheduled(giveaway); // A restart schedules it again from the local snapshot
+        scheduleEndAndReminders(giveaway, shardManager, giveawayService, winnerService, durationMillis);
+    }
 
-        scheduleReminders(giveaway, jda, durationMillis); // Schedule reminders for the giveaway
+    // Schedules a giveaway restored from the snapshot at startup, without touching the database (it may be down).
+    // Another instance may have taken it over during the downtime, the end and the reminders check the lease when they fire
+    public void scheduleRestoredGiveawayEnd(final GiveawayEntity giveaway, ShardManager shardManager, GiveawayService giveawayService, WinnerService winnerService, long durationMillis) {
+        scheduleEndAndReminders(giveaway, shardManager, giveawayService, winnerService, durationMillis);
+    }
+
+    private void scheduleEndAndReminders(GiveawayEntity giveaway, ShardManager shardManager, GiveawayService giveawayService, WinnerService winnerService, long durationMillis) {
+        scheduleReminders(giveaway, shardManager, giveawayService, durationMillis); // Schedule reminders for the giveaway
 
         // Schedule the end of the giveaway after <durationMillis> milliseconds
-        timer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                endGiveaway(giveaway, jda, giveaway.getMessageId(), giveawayService, winnerService);
-            }
-        }, durationMillis);
+        giveawayScheduler.schedule(GiveawayScheduler.TaskType.END, giveaway.getMessageId(), durationMillis,
+                () -> endOwnedGiveaway(giveaway, shardManager, giveawayService, winnerService));
     }
 
     // Method is boolean to indicate if the giveaway was found and cancelled
-    public static boolean cancelScheduledGiveawayEnd(GiveawayEntity giveaway) {
-        // Cancel the scheduled end for the giveaway and remove it from the map
-        Timer timer = giveawayTimers.remove(giveaway.getMessageId());
-        if (timer != null) {
-            timer.cancel();
-            cancelReminderTimers(giveaway.getMessageId());
+    public boolean cancelScheduledGiveawayEnd(GiveawayEntity giveaway) {
+        // Cancel the scheduled end for the giveaway together with its reminders
+        if (giveawayScheduler.cancel(GiveawayScheduler.TaskType.END, giveaway.getMessageId())) {
+            cancelReminders(giveaway.getMessageId());
             LOGGER.info("Cancelled the scheduled end for giveaway: {}", giveaway.getTitle());
             return true;
         }
@@ -66,95 +78,145 @@ public class GiveawayUtil {
         return false;
     }
 
-    public void endGiveaway(final GiveawayEntity giveaway, JDA jda, final long messageId, GiveawayService giveawayService, WinnerService winnerService) {
-        // Reload the giveaway from the database to ensure the entries are up-to-date
-        final GiveawayEntity updatedGiveaway = giveawayService.getGiveawayByMessageId(giveaway.getMessageId());
-        LOGGER.info("Entries: {}", updatedGiveaway.getEntries());
+    // Ends a giveaway from its scheduled task. The lease may have been taken over since the end was scheduled
+    // (e.g. the heartbeat stalled during a long pause), the new owner then ends and announces it instead
+    public void endOwnedGiveaway(final GiveawayEntity giveaway, ShardManager shardManager, GiveawayService giveawayService, WinnerService winnerService) {
+        if (!giveawayService.ownsLease(giveaway.getId())) {
+            LOGGER.warn("Giveaway {} was taken over by another instance, not ending it here.", giveaway.getTitle());
+            cancelReminders(giveaway.getMessageId());
+            giveawayService.discardCheckpoint(giveaway.getId());
+            return;
+        }
+        endGiveaway(giveaway, shardManager, giveaway.getMessageId(), giveawayService, winnerService);
+    }
+
+    public void endGiveaway(final GiveawayEntity giveaway, ShardManager shardManager, final long messageId, GiveawayService giveawayService, WinnerService winnerService) {
+        long drawStart = System.nanoTime();
+        // Write the buffered entries first so that every reaction takes part in the draw
+        giveawayService.flushPendingEntries(giveaway.getId());
 
-        List<Long> winners = FairRandomizer.selectWinners(updatedGiveaway.getEntries(), updatedGiveaway.getNumberOfWinners());
+        GiveawayService.DrawResult draw = giveawayService.drawWinners(giveaway.getId());
+        recordDraw(draw, System.nanoTime() - drawStart);
+        giveawayService.releaseEntryBuffer(giveaway.getId());
+        cancelReminders(messageId);
+        if (draw == null) {
+            return;
+        }
+
+        final GiveawayEntity updatedGiveaway = draw.giveaway();
+        List<Long> winners = draw.winnerIds();
         LOGGER.info("Selected winners for giveaway {}: {}", updatedGiveaway.getTitle(), winners);
 
-        TextChannel textChannel = jda.getTextChannelById(updatedGiveaway.getChannelId());
+        TextChannel textChannel = getTextChannel(shardManager, updatedGiveaway.getGuildId(), updatedGiveaway.getChannelId());
         if (textChannel == null) {
+            // The giveaway stays in DRAWING, the announcement is retried at the next start
             LOGGER.error("Channel not found for giveaway: {}", updatedGiveaway.getMessageId());
             return;
         }
 
         Long guildId = giveaway.getGuildId();
-
+        String announcement;
         if (winners.isEmpty()) {
-            String noEntriesMessage = localizationUtil.getLocalizedMessage(guildId, "giveaway_no_entries").replace("{0}", updatedGiveaway.getTitle());
-            textChannel.retrieveMessageById(messageId).queue(message -> message.reply(noEntriesMessage).queue());
-            return;
-        }
-
-        // small gimmick to show the winner/winners based on the number of winners
-        String winnerText = giveaway.getNumberOfWinners() == 1 ? localizationUtil.getLocalizedMessage(guildId, "winner") : localizationUtil.getLocalizedMessage(guildId, "winners");
-        StringBuilder winnerMessage = new StringBuilder(localizationUtil.getLocalizedMessage(guildId, "giveaway_winner_message").replace("{0}", updatedGiveaway.getTitle()) + " " + winnerText + ":\n");
-        for (Long winnerId : winners) {
-            winnerMessage.append("<@").append(winnerId).append(">\n");
-            winnerService.addWinner(new WinnerEntity(updatedGiveaway.getTitle(), updatedGiveaway.getMessageId(), winnerId, guildId));
+            announcement = localizationUtil.getLocalizedMessage(guildId, "giveaway_no_entries").replace("{0}", updatedGiveaway.getTitle());
+        } else {
+            // small gimmick to show the winner/winners based on the number of winners
+            String winnerText = giveaway.getNumberOfWinners() == 1 ? localizationUtil.getLocalizedMessage(guildId, "winner") : localizationUtil.getLocalizedMessage(guildId, "winners");
+            StringBuilder winnerMessage = new StringBuilder(localizationUtil.getLocalizedMessage(guildId, "giveaway_winner_message").replace("{0}", updatedGiveaway.getTitle()) + " " + winnerText + ":\n");
+            for (Long winnerId : winners) {
+                winnerMessage.append("<@").append(winnerId).append(">\n");
+            }
+            announcement = winnerMessage.toString();
         }
 
-        giveawayTimers.remove(messageId);
-        textChannel.retrieveMessageById(messageId).queue(message -> message.reply(winnerMessage.toString()).queue());
-
-        LOGGER.info("Giveaway {} has ended!", updatedGiveaway.getTitle());
+        // If the giveaway message was deleted, the winners are announced without a reply
+        messageDispatcher.reply(textChannel, messageId, announcement, MessageDispatcher.Priority.WINNER_ANNOUNCEMENT)
+                .whenComplete((sent, error) -> {
+                    if (error == null) {
+                        // Completed on a JDA thread, the transaction runs on the scheduler workers
+                        giveawayScheduler.execute("end of giveaway " + updatedGiveaway.getTitle(), () -> {
+                            giveawayService.markGiveawayEnded(updatedGiveaway.getId());
+                            LOGGER.info("Giveaway {} has ended!", updatedGiveaway.getTitle());
+                        });
+                    } else {
+                        LOGGER.error("Failed to announce the winners of giveaway {}, retrying at the next start: ", updatedGiveaway.getTitle(), error);
+                    }
+                });
     }
 
-    // Method used to schedule reminders for the giveaway
-    private void scheduleReminders(GiveawayEntity giveaway, JDA jda, long durationMillis) {
-        Instant startTime = giveaway.getStartTime();
+    // outcome: drawn, redrawn (winners drawn before, only announced again) or skipped (not active anymore)
+    private static void recordDraw(GiveawayService.DrawResult draw, long durationNanos) {
+        String outcome = draw == null ? "skipped" : draw.entryCount() < 0 ? "redrawn" : "drawn";
+        Timer.builder("giveaway.draw.duration")
+                .tag("outcome", outcome)
+                .description("Time spent flushing the entries and drawing the winners of a giveaway")
+                .register(Metrics.globalRegistry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+        if (draw != null && draw.entryCount() >= 0) {
+            ENTRY_POOL_SIZE.record(draw.entryCount());
+        }
+    }
 
-        long reminderTime50Percent = startTime.plusMillis(durationMillis / 2).toEpochMilli();
-        long reminderTime90Percent = startTime.plusMillis((long) (durationMillis * 0.9)).toEpochMilli();
+    // Resolves the channel through the shard of its guild. Returns null if the shard is not running or the channel does not exist
+    public static TextChannel getTextChannel(ShardManager shardManager, Long guildId, Long channelId) {
+        JDA shard = shardManager.getShardById(MiscUtil.getShardForGuild(guildId, shardManager.getShardsTotal()));
+        return shard != null ? shard.getTextChannelById(channelId) : null;
+    }
 
-        scheduleReminder(giveaway, jda, reminderTime50Percent, REMINDER_PERCENTAGE_50);
-        scheduleReminder(giveaway, jda, reminderTime90Percent, REMINDER_PERCENTAGE_90);
+    // Method used to schedule the first reminder of the giveaway that is still ahead
+    private void scheduleReminders(GiveawayEntity giveaway, ShardManager shardManager, GiveawayService giveawayService, long durationMillis) {
+        ReminderSchedule schedule = ReminderSchedule.parseOrDefault(giveaway.getReminderSchedule());
+        scheduleNextReminder(giveaway, shardManager, giveawayService, schedule, durationMillis, Instant.now().toEpochMilli());
     }
 
-    private void scheduleReminder(GiveawayEntity giveaway, JDA jda, long reminderTime, int percentage) {
-        long currentTime = Instant.now().toEpochMilli();
-        if (reminderTime > currentTime) {
-            Timer reminderTimer = new Timer();
-            reminderTimer.schedule(new TimerTask() {
-                @Override
-                public void run() {
-                    sendReminder(giveaway, jda, percentage);
-                }
-            }, reminderTime - currentTime);
-
-            // Add reminder timer to the list of reminders for this giveaway
-            reminderTimers.computeIfAbsent(giveaway.getMessageId(), timer -> new ArrayList<>()).add(reminderTimer);
+    private void scheduleNextReminder(GiveawayEntity giveaway, ShardManager shardManager, GiveawayService giveawayService,
+                                      ReminderSchedule schedule, long durationMillis, long afterMillis) {
+        long startTime = giveaway.getStartTime().toEpochMilli();
+        long reminderTime = schedule.nextReminder(startTime, durationMillis, afterMillis);
+        if (reminderTime < 0) {
+            return;
         }
+
+        long delay = Math.max(0, reminderTime - Instant.now().toEpochMilli());
+        giveawayScheduler.schedule(GiveawayScheduler.TaskType.REMINDER, giveaway.getMessageId(), delay, () -> {
+            // A reminder that fires while the giveaway is ending must not schedule the next one,
+            // and the reminders of a giveaway taken over by another instance are sent by that instance
+            if (!giveawayService.isAcceptingEntries(giveaway.getMessageId()) || !giveawayService.ownsLease(giveaway.getId())) {
+                return;
+            }
+            sendReminder(giveaway, shardManager, giveawayService, startTime, durationMillis, reminderTime);
+            scheduleNextReminder(giveaway, shardManager, giveawayService, schedule, durationMillis, reminderTime);
+        });
     }
 
     // Method used to send a reminder message for the giveaway
-    private static void sendReminder(GiveawayEntity giveaway, JDA jda, int percentage) {
-        TextChannel channel = jda.getTextChannelById(giveaway.getChannelId());
+    private void sendReminder(GiveawayEntity giveaway, ShardManager shardManager, GiveawayService giveawayService,
+                              long startTime, long durationMillis, long reminderTime) {
+        TextChannel channel = getTextChannel(shardManager, giveaway.getGuildId(), giveaway.getChannelId());
         if (channel != null) {
             Long guildId = giveaway.getGuildId();
+            long endTime = startTime + durationMillis;
             String message;
-            if (percentage == 50) {
+            if (Math.round((reminderTime - startTime) * 100.0 / durationMillis) == 50) {
                 String winnerText = giveaway.getNumberOfWinners() == 1 ? localizationUtil.getLocalizedMessage(guildId, "winner") : localizationUtil.getLocalizedMessage(guildId, "winners");
                 message = localizationUtil.getLocalizedMessage(guildId, "giveaway_halfway_reminder").replace("{0}", winnerText);
-            } else {
+            } else if ((endTime - reminderTime) * 10 <= durationMillis) {
                 message = localizationUtil.getLocalizedMessage(guildId, "giveaway_almost_ended_reminder");
+            } else {
+                // Discord shows the relative time ("in 6 hours") in the language of the reader
+                message = localizationUtil.getLocalizedMessage(guildId, "giveaway_time_left_reminder").replace("{0}", "<t:" + endTime / 1000 + ":R>");
             }
-            channel.retrieveMessageById(giveaway.getMessageId()) // Fetch the giveaway message
-                    .queue(giveawayMessage -> giveawayMessage.reply(message).queue(),  // Reply to it if found
-                            error -> LOGGER.warn("Giveaway message not found for ID: {}", giveaway.getMessageId())); // Handle if not found
+            // The reminder may wait behind other messages of the channel, it is dropped if the giveaway stopped accepting entries meanwhile
+            messageDispatcher.reply(channel, giveaway.getMessageId(), message, MessageDispatcher.Priority.REMINDER,
+                    () -> !giveawayService.isAcceptingEntries(giveaway.getMessageId()));
         } else {
             LOGGER.warn("Channel not found for giveaway: {}", giveaway.getTitle());
         }
     }
 
-    // Cancel all reminder timers for a giveaway
-    private static void cancelReminderTimers(Long messageId) {
-        List<Timer> timers = reminderTimers.remove(messageId);
-        if (timers != null) {
-            timers.forEach(Timer::cancel);
-            LOGGER.info("Cancelled all reminder timers for giveaway with message ID: {}", messageId);
+    // Cancel all pending reminders for a giveaway
+    private void cancelReminders(long messageId) {
+        if (giveawayScheduler.cancel(GiveawayScheduler.TaskType.REMINDER, messageId)) {
+            LOGGER.info("Cancelled all reminders for giveaway with message ID: {}", messageId);
         }
     }
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 /**
  * Localization Utility class to get localized messages
  * It uses the LocaleConfig to get the locale for a guild and ResourceBundle to get the messages for that locale.
+ * The bundles of the supported locales are resolved once at startup, so looking up a message does no I/O.
  */
 
 package org.example.utils;
@@ -10,21 +11,32 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.Locale;
+import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Component
 public class LocalizationUtil {
 
     private final LocaleConfig localeConfig;
+    private final Map<Locale, ResourceBundle> bundles = new ConcurrentHashMap<>();
 
     @Autowired
     public LocalizationUtil(LocaleConfig localeConfig) {
         this.localeConfig = localeConfig;
+        for (Locale locale : localeConfig.getSupportedLocales()) {
+            bundles.put(locale, ResourceBundle.getBundle("messages", locale));
+        }
     }
 
     public String getLocalizedMessage(Long guildId, String key) {
         Locale locale = localeConfig.getLocaleForGuild(guildId);
-        ResourceBundle messages = ResourceBundle.getBundle("messages", locale);
+        ResourceBundle messages = bundles.computeIfAbsent(locale, missing -> ResourceBundle.getBundle("messages", missing));
         return messages.getString(key);
     }
+
+    // Drops the cached locale of the guild, the next message is resolved with its new language preference
+    public void invalidateLocale(Long guildId) {
+        localeConfig.invalidate(guildId);
+    }
 }
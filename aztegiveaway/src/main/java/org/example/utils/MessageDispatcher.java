@@ -0,0 +1,181 @@
+/**
+ * Sends the messages the bot posts on its own (winner announcements and reminders) through one queue per channel.
+ * A message replies to the giveaway message by reference, so the giveaway message is not fetched first (one REST call instead of two).
+ * Every channel has at most one message in flight: the next one is only handed to JDA once the previous one was sent,
+ * so the waiting messages stay in our priority queue instead of the FIFO rate limit queue of JDA,
+ * and a winner announcement overtakes the reminders queued in its channel when the rate limit of the channel is hit.
+ * A reminder replaces the reminder of the same giveaway that is still waiting, and is dropped right before sending
+ * if it became stale (e.g. the giveaway ended meanwhile).
+ * The number of queued messages, the time they waited and the dropped messages are exposed as metrics.
+ */
+
+package org.example.utils;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+@Component
+public class MessageDispatcher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MessageDispatcher.class);
+
+    // Declared from the highest to the lowest priority
+    public enum Priority {
+        WINNER_ANNOUNCEMENT,
+        REMINDER
+    }
+
+    private record OutboundMessage(TextChannel channel, long replyToMessageId, String content, Priority priority,
+                                   BooleanSupplier isStale, long sequence, long enqueuedNanos,
+                                   CompletableFuture<Message> result) implements Comparable<OutboundMessage> {
+        @Override
+        public int compareTo(OutboundMessage other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private static final class ChannelQueue {
+        private final PriorityQueue<OutboundMessage> waiting = new PriorityQueue<>();
+        private boolean inFlight;
+    }
+
+    // channel ID -> messages waiting for the channel. A channel is removed once nothing is waiting or in flight
+    private final Map<Long, ChannelQueue> channelQueues = new HashMap<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private long nextSequence;
+
+    private final Counter staleMessages = droppedCounter("stale");
+    private final Counter supersededMessages = droppedCounter("superseded");
+
+    public MessageDispatcher() {
+        Gauge.builder("giveaway.dispatcher.queued", queued, AtomicInteger::get)
+                .description("Messages waiting to be sent")
+                .register(Metrics.globalRegistry);
+    }
+
+    /**
+     * Queues a reply to a message of the channel
+     *
+     * @param channel          The channel to send the reply to
+     * @param replyToMessageId The ID of the message to reply to. If it was deleted, the reply is sent as a plain message
+     * @param content          The content of the reply
+     * @param priority         Waiting messages of a channel are sent by priority, then in the order they were queued
+     * @param isStale          Checked right before sending, the reply is dropped if it returns true
+     * @return Completes with the sent message, with null if the reply was dropped, or exceptionally if sending failed
+     */
+    public CompletableFuture<Message> reply(TextChannel channel, long replyToMessageId, String content, Priority priority, BooleanSupplier isStale) {
+        CompletableFuture<Message> result = new CompletableFuture<>();
+        OutboundMessage next;
+        synchronized (channelQueues) {
+            ChannelQueue channelQueue = channelQueues.computeIfAbsent(channel.getIdLong(), id -> new ChannelQueue());
+            if (priority == Priority.REMINDER) {
+                // Only the latest reminder of a giveaway is worth sending
+                channelQueue.waiting.removeIf(waiting -> {
+                    if (waiting.priority() == Priority.REMINDER && waiting.replyToMessageId() == replyToMessageId) {
+                        queued.decrementAndGet();
+                        supersededMessages.increment();
+                        waiting.result().complete(null);
+                        return true;
+                    }
+                    return false;
+                });
+            }
+            channelQueue.waiting.add(new OutboundMessage(channel, replyToMessageId, content, priority, isStale,
+                    nextSequence++, System.nanoTime(), result));
+            queued.incrementAndGet();
+            next = takeNext(channel.getIdLong(), channelQueue);
+        }
+        send(next);
+        return result;
+    }
+
+    public CompletableFuture<Message> reply(TextChannel channel, long replyToMessageId, String content, Priority priority) {
+        return reply(channel, replyToMessageId, content, priority, () -> false);
+    }
+
+    // Hands the next waiting message of the channel to JDA, or returns null if one is in flight or none is waiting.
+    // Must be called while holding the lock of the queues
+    private OutboundMessage takeNext(long channelId, ChannelQueue channelQueue) {
+        if (channelQueue.inFlight) {
+            return null;
+        }
+        OutboundMessage next = channelQueue.waiting.poll();
+        if (next == null) {
+            channelQueues.remove(channelId);
+            return null;
+        }
+        queued.decrementAndGet();
+        channelQueue.inFlight = true;
+        return next;
+    }
+
+    private void send(OutboundMessage message) {
+        while (message != null) {
+            Timer.builder("giveaway.dispatcher.delay")
+                    .tag("priority", message.priority().name().toLowerCase())
+                    .description("Time a message waited in the queue of its channel")
+                    .register(Metrics.globalRegistry)
+                    .record(System.nanoTime() - message.enqueuedNanos(), TimeUnit.NANOSECONDS);
+
+            if (!message.isStale().getAsBoolean()) {
+                OutboundMessage sending = message;
+                sending.channel().sendMessage(sending.content())
+                        .setMessageReference(sending.replyToMessageId())
+                        .failOnInvalidReply(false)
+                        .queue(sent -> {
+                            sending.result().complete(sent);
+                            send(complete(sending));
+                        }, error -> {
+                            LOGGER.warn("Failed to send a message to channel {}: {}", sending.channel().getId(), error.getMessage());
+                            sending.result().completeExceptionally(error);
+                            send(complete(sending));
+                        });
+                return;
+            }
+
+            // Nothing was sent, the next message of the channel can go right away
+            staleMessages.increment();
+            message.result().complete(null);
+            message = complete(message);
+        }
+    }
+
+    // Marks the message of the channel as done and returns the next one to send
+    private OutboundMessage complete(OutboundMessage message) {
+        long channelId = message.channel().getIdLong();
+        synchronized (channelQueues) {
+            ChannelQueue channelQueue = channelQueues.get(channelId);
+            if (channelQueue == null) {
+                return null;
+            }
+            channelQueue.inFlight = false;
+            return takeNext(channelId, channelQueue);
+        }
+    }
+
+    private static Counter droppedCounter(String reason) {
+        return Counter.builder("giveaway.dispatcher.dropped")
+                .tag("reason", reason)
+                .description("Messages that were not sent because they were replaced or became stale")
+                .register(Metrics.globalRegistry);
+    }
+}
@@ -0,0 +1,53 @@
+/**
+ * Event manager of a shard that measures how long the listeners take for each gateway event.
+ * The timer gives the event throughput (count) and the dispatch latency of every shard,
+ * the gateway ping of the shard is exposed as a gauge once the shard is ready.
+ * Used through DefaultShardManagerBuilder.setEventManagerProvider, one instance per shard.
+ */
+
+package org.example.utils;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.events.GenericEvent;
+import net.dv8tion.jda.api.events.session.ReadyEvent;
+import net.dv8tion.jda.api.hooks.InterfacedEventManager;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.TimeUnit;
+
+public class MeteredEventManager extends InterfacedEventManager {
+
+    private final String shardId;
+    private final Timer eventTimer;
+
+    public MeteredEventManager(int shardId) {
+        this.shardId = String.valueOf(shardId);
+        this.eventTimer = Timer.builder("giveaway.shard.events")
+                .tag("shard", this.shardId)
+                .description("Gateway events dispatched to the listeners of the shard")
+                .register(Metrics.globalRegistry);
+    }
+
+    @Override
+    public void handle(@NotNull GenericEvent event) {
+        if (event instanceof ReadyEvent) {
+            Gauge.builder("giveaway.shard.gateway.ping", event.getJDA(), JDA::getGatewayPing)
+                    .tag("shard", shardId)
+                    .description("Heartbeat latency of the gateway connection of the shard")
+                    .baseUnit("milliseconds")
+                    .register(Metrics.globalRegistry);
+        }
+
+        long start = System.nanoTime();
+        try {
+            super.handle(event);
+        } finally {
+            eventTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
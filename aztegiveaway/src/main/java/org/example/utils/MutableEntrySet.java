@@ -0,0 +1,94 @@
+/**
+ * Growable set of user IDs kept as sorted arrays of primitive longs, the mutable counterpart of EntrySet.
+ * The entries live in one exactly sized sorted array, the latest additions in a small sorted array next to it,
+ * which is merged into the big one once it is full. A set costs about 8 bytes per entry instead of the 60 to 80 bytes
+ * of a boxed concurrent set, and an addition only moves the small array, the big one is rebuilt once per batch.
+ * Membership is a binary search in both arrays. All methods are synchronized, the set is shared by the reaction threads.
+ */
+
+package org.example.utils;
+
+import java.util.Arrays;
+
+public final class MutableEntrySet {
+
+    private static final int INITIAL_RECENT_CAPACITY = 16;
+    private static final int MAX_RECENT_CAPACITY = 1024; // additions merged at once into the sorted entries
+
+    // Sorted ascending, without duplicates, exactly as long as the merged entries
+    private long[] userIds = new long[0];
+    // The entries added since the last merge, sorted ascending in the first recentSize slots
+    private long[] recent = new long[INITIAL_RECENT_CAPACITY];
+    private int recentSize;
+
+    // Returns false if the user is already in the set
+    public synchronized boolean add(long userId) {
+        if (Arrays.binarySearch(userIds, userId) >= 0) {
+            return false;
+        }
+        int position = Arrays.binarySearch(recent, 0, recentSize, userId);
+        if (position >= 0) {
+            return false;
+        }
+
+        int insertion = -position - 1;
+        if (recentSize == recent.length) {
+            recent = Arrays.copyOf(recent, recent.length * 2);
+        }
+        System.arraycopy(recent, insertion, recent, insertion + 1, recentSize - insertion);
+        recent[insertion] = userId;
+        if (++recentSize == MAX_RECENT_CAPACITY) {
+            merge();
+        }
+        return true;
+    }
+
+    // Returns false if the user was not in the set
+    public synchronized boolean remove(long userId) {
+        int position = Arrays.binarySearch(recent, 0, recentSize, userId);
+        if (position >= 0) {
+            System.arraycopy(recent, position + 1, recent, position, recentSize - position - 1);
+            recentSize--;
+            return true;
+        }
+
+        // Withdrawals are rare compared to entries, the sorted entries are copied without the user
+        position = Arrays.binarySearch(userIds, userId);
+        if (position < 0) {
+            return false;
+        }
+        long[] remaining = new long[userIds.length - 1];
+        System.arraycopy(userIds, 0, remaining, 0, position);
+        System.arraycopy(userIds, position + 1, remaining, position, remaining.length - position);
+        userIds = remaining;
+        return true;
+    }
+
+    public synchronized boolean contains(long userId) {
+        return Arrays.binarySearch(userIds, userId) >= 0 || Arrays.binarySearch(recent, 0, recentSize, userId) >= 0;
+    }
+
+    public synchronized int size() {
+        return userIds.length + recentSize;
+    }
+
+    // Merges the recent additions into the sorted entries, both are sorted and disjoint
+    private void merge() {
+        long[] merged = new long[userIds.length + recentSize];
+        int i = 0;
+        int j = 0;
+        int count = 0;
+        while (i < userIds.length && j < recentSize) {
+            merged[count++] = userIds[i] < recent[j] ? userIds[i++] : recent[j++];
+        }
+        while (i < userIds.length) {
+            merged[count++] = userIds[i++];
+        }
+        while (j < recentSize) {
+            merged[count++] = recent[j++];
+        }
+        userIds = merged;
+        recent = new long[INITIAL_RECENT_CAPACITY];
+        recentSize = 0;
+    }
+}
@@ -0,0 +1,183 @@
+/**
+ * Single event listener for the page buttons of every paginated message.
+ * Commands register a session for the message they sent, the router finds the session of a clicked message by its ID
+ * and lets the session render the previous or next page. It must be registered once as JDA event listener.
+ * A click is acknowledged right away and the page is rendered on the CommandExecutor: rendering reads the page
+ * from the database, which must not stall the other events of the shard.
+ * Sessions expire after a period without clicks and the number of live sessions is capped, the least recently used
+ * session is evicted first. Clicking an expired message removes its buttons.
+ * The number of active sessions and the evictions are exposed as metrics.
+ */
+
+package org.example.utils;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+
+import net.dv8tion.jda.api.entities.emoji.Emoji;
+import net.dv8tion.jda.api.events.interaction.component.ButtonInteractionEvent;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import net.dv8tion.jda.api.interactions.components.ActionRow;
+import net.dv8tion.jda.api.interactions.components.buttons.Button;
+
+import org.jetbrains.annotations.NotNull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Component
+public class PaginationRouter extends ListenerAdapter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PaginationRouter.class);
+
+    public static final String PREVIOUS_BUTTON_ID = "page:previous";
+    public static final String NEXT_BUTTON_ID = "page:next";
+
+    /**
+     * Renders the pages of one paginated message
+     *
+     * @param <S> The state needed to find the neighbour pages (e.g. the IDs of the first and last row shown)
+     */
+    @FunctionalInterface
+    public interface PageRenderer<S> {
+        /**
+         * Edits the message of the event to show the previous or next page. Runs on the command pool,
+         * the event is already acknowledged (deferEdit), the message is edited through its hook.
+         *
+         * @return The state of the page now shown
+         */
+        S flip(ButtonInteractionEvent event, S state, boolean next);
+    }
+
+    private static final class Session<S> {
+        private final PageRenderer<S> renderer;
+        private S state;
+        private long expiresAtMillis;
+
+        private Session(PageRenderer<S> renderer, S state, long expiresAtMillis) {
+            this.renderer = renderer;
+            this.state = state;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+
+    private final CommandExecutor commandExecutor;
+    private final int maxSessions;
+    private final long ttlMillis;
+
+    // message ID -> session, in access order. A click renews the expiry, so the eldest session also expires first
+    private final LinkedHashMap<Long, Session<?>> sessions;
+
+    private final Counter expiredEvictions = Counter.builder("giveaway.pagination.sessions.evicted")
+            .tag("reason", "expired")
+            .description("Pagination sessions removed because nobody used them for a while")
+            .register(Metrics.globalRegistry);
+    private final Counter capacityEvictions = Counter.builder("giveaway.pagination.sessions.evicted")
+            .tag("reason", "capacity")
+            .description("Pagination sessions removed to stay under the session limit")
+            .register(Metrics.globalRegistry);
+
+    @Autowired
+    public PaginationRouter(CommandExecutor commandExecutor,
+                            @Value("${giveaway.pagination.max-sessions:1000}") int maxSessions,
+                            @Value("${giveaway.pagination.ttl-minutes:15}") long ttlMinutes) {
+        this.commandExecutor = commandExecutor;
+        this.maxSessions = maxSessions;
+        this.ttlMillis = ttlMinutes * 60_000;
+        this.sessions = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Session<?>> eldest) {
+                if (size() > PaginationRouter.this.maxSessions) {
+                    capacityEvictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+
+        Gauge.builder("giveaway.pagination.sessions.active", this, PaginationRouter::getActiveSessionCount)
+                .description("Number of paginated messages whose buttons are handled")
+                .register(Metrics.globalRegistry);
+    }
+
+    public <S> void register(long messageId, S state, PageRenderer<S> renderer) {
+        long now = System.currentTimeMillis();
+        synchronized (sessions) {
+            evictExpired(now);
+            sessions.put(messageId, new Session<>(renderer, state, now + ttlMillis));
+        }
+    }
+
+    // The previous/next buttons of a page, disabled at the first and last page
+    public static ActionRow pageButtons(boolean hasPrevious, boolean hasNext) {
+        return ActionRow.of(
+                Button.secondary(PREVIOUS_BUTTON_ID, Emoji.fromUnicode("⬅️")).withDisabled(!hasPrevious),
+                Button.secondary(NEXT_BUTTON_ID, Emoji.fromUnicode("➡️")).withDisabled(!hasNext));
+    }
+
+    @Override
+    public void onButtonInteraction(@NotNull ButtonInteractionEvent event) {
+        String buttonId = event.getComponentId();
+        if (!PREVIOUS_BUTTON_ID.equals(buttonId) && !NEXT_BUTTON_ID.equals(buttonId)) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        Session<?> session;
+        synchronized (sessions) {
+            evictExpired(now);
+            session = sessions.get(event.getMessageIdLong());
+            if (session != null) {
+                session.expiresAtMillis = now + ttlMillis;
+            }
+        }
+
+        if (session == null) {
+            // The session expired, was evicted or the bot restarted: the buttons cannot be used anymore
+            event.editComponents().queue();
+            return;
+        }
+
+        event.deferEdit().queue();
+        long guildId = event.getGuild() != null ? event.getGuild().getIdLong() : 0L;
+        boolean next = NEXT_BUTTON_ID.equals(buttonId);
+        if (!commandExecutor.execute(guildId, "page", () -> flip(session, event, next))) {
+            // The click was acknowledged, the page simply stays as it is
+            LOGGER.warn("Too busy to flip the page of message {}", event.getMessageIdLong());
+        }
+    }
+
+    public int getActiveSessionCount() {
+        synchronized (sessions) {
+            return sessions.size();
+        }
+    }
+
+    // Clicks on the same message are handled one after the other, so the state always matches the page shown
+    private static <S> void flip(Session<S> session, ButtonInteractionEvent event, boolean next) {
+        synchronized (session) {
+            session.state = session.renderer.flip(event, session.state, next);
+        }
+    }
+
+    // Must hold the sessions lock
+    private void evictExpired(long now) {
+        Iterator<Session<?>> iterator = sessions.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().expiresAtMillis > now) {
+                break;
+            }
+            iterator.remove();
+            expiredEvictions.increment();
+        }
+    }
+}
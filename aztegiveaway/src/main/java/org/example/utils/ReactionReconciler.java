@@ -0,0 +1,130 @@
+/**
+ * Recovers the entries of users who reacted to a giveaway while the bot was offline.
+ * Reactions are only received through the gateway, so the 🎉 reactors of the giveaway message are read page by page
+ * (100 users per request) and queued in the EntryBufferService, which writes them in batches and ignores known entries.
+ * Every channel has a request budget: the pages of all giveaways of a channel are requested one after the other
+ * with a minimum interval, so reconciling many giveaways at startup stays under the rate limits of Discord.
+ * Requests are sent from a scheduler thread and answered on the JDA callback threads, the gateway threads are never blocked.
+ */
+
+package org.example.utils;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+
+import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+import net.dv8tion.jda.api.entities.emoji.Emoji;
+
+import org.example.services.EntryBufferService;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Component
+public class ReactionReconciler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReactionReconciler.class);
+    private static final Emoji ENTRY_EMOJI = Emoji.fromUnicode("🎉");
+    private static final int PAGE_SIZE = 100; // maximum number of reaction users Discord returns per request
+
+    private final EntryBufferService entryBufferService;
+    private final long channelIntervalNanos;
+
+    // channel ID -> earliest time (System.nanoTime) at which the next request of the channel may be sent
+    private final Map<Long, Long> nextRequestSlots = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService requestScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "reaction-reconciler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Counter recoveredEntries = Counter.builder("giveaway.reconciliation.entries")
+            .description("Entries recovered from the reactions added while the bot was offline")
+            .register(Metrics.globalRegistry);
+
+    @Autowired
+    public ReactionReconciler(EntryBufferService entryBufferService,
+                              @Value("${giveaway.reconciliation.channel-interval-ms:1000}") long channelIntervalMillis) {
+        this.entryBufferService = entryBufferService;
+        this.channelIntervalNanos = TimeUnit.MILLISECONDS.toNanos(channelIntervalMillis);
+    }
+
+    /**
+     * Queues an entry for every user who reacted with 🎉 to the giveaway message and has not entered yet
+     *
+     * @param channel    The channel of the giveaway
+     * @param giveawayId The ID of the giveaway
+     * @param messageId  The ID of the giveaway message
+     * @return Completes with the number of entries recovered once every page was read, or exceptionally if a request failed
+     */
+    public CompletableFuture<Integer> reconcile(TextChannel channel, long giveawayId, long messageId) {
+        CompletableFuture<Integer> result = new CompletableFuture<>();
+        requestPage(channel, giveawayId, messageId, 0L, new AtomicInteger(), result);
+        return result.whenComplete((recovered, error) -> {
+            if (error != null) {
+                LOGGER.warn("Failed to reconcile the reactions of giveaway with ID {}: {}", giveawayId, error.getMessage());
+            } else if (recovered > 0) {
+                LOGGER.info("Recovered {} entries for giveaway with ID {} from its reactions", recovered, giveawayId);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        requestScheduler.shutdownNow();
+    }
+
+    // Requests the reactors after the given user ID (Discord returns them ordered by ID) once the budget of the channel allows it
+    private void requestPage(TextChannel channel, long giveawayId, long messageId, long afterUserId,
+                             AtomicInteger recovered, CompletableFuture<Integer> result) {
+        long delayNanos = reserveRequestSlot(channel.getIdLong());
+        requestScheduler.schedule(() -> channel.retrieveReactionUsersById(messageId, ENTRY_EMOJI)
+                .limit(PAGE_SIZE)
+                .skipTo(afterUserId)
+                .queue(users -> {
+                    List<Long> userIds = new ArrayList<>(users.size());
+                    for (User user : users) {
+                        if (!user.isBot()) {
+                            userIds.add(user.getIdLong());
+                        }
+                    }
+                    int added = entryBufferService.addEntries(giveawayId, userIds);
+                    recovered.addAndGet(added);
+                    recoveredEntries.increment(added);
+
+                    if (users.size() < PAGE_SIZE) {
+                        result.complete(recovered.get());
+                    } else {
+                        requestPage(channel, giveawayId, messageId, users.get(users.size() - 1).getIdLong(), recovered, result);
+                    }
+                }, result::completeExceptionally), delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // Takes the next free request slot of the channel and returns the time to wait for it
+    private long reserveRequestSlot(long channelId) {
+        long now = System.nanoTime();
+        long slot = nextRequestSlots.compute(channelId, (id, next) ->
+                next == null || next - now < 0 ? now + channelIntervalNanos : next + channelIntervalNanos) - channelIntervalNanos;
+        // Channels whose budget is fully available again do not need to be remembered
+        nextRequestSlots.values().removeIf(next -> next - now < 0);
+        return Math.max(0, slot - now);
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ * Creates the giveaways of the recurring templates when their time has come.
+ * Only one task is pending on the GiveawayScheduler for all templates: it fires at the earliest next fire time
+ * (read from the next_fire_time index), creates the giveaways of every due template and is scheduled again for the next one.
+ * Creating or deleting a template schedules the task again, and it also fires every few minutes so that templates
+ * created by another instance of the bot are picked up. The created giveaways are planned giveaways starting now,
+ * they are handed to the listener given at start (RescheduleUtil) which starts them like any other planned giveaway.
+ */
+
+package org.example.utils;
+
+import org.example.entities.GiveawayEntity;
+import org.example.entities.RecurringGiveawayEntity;
+import org.example.services.RecurringGiveawayService;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+@Component
+public class RecurringGiveawayScheduler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RecurringGiveawayScheduler.class);
+    private static final long TASK_KEY = 0L; // the single task of all templates
+    private static final int BATCH_SIZE = 100; // due templates handled per firing
+    private static final long RETRY_DELAY_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final GiveawayScheduler giveawayScheduler;
+    private final RecurringGiveawayService recurringGiveawayService;
+    private final long pollMillis;
+
+    // Starts the created giveaways, null until the shards are ready
+    private volatile Consumer<GiveawayEntity> instanceListener;
+
+    @Autowired
+    public RecurringGiveawayScheduler(GiveawayScheduler giveawayScheduler, RecurringGiveawayService recurringGiveawayService,
+                                      @Value("${giveaway.recurring.poll-seconds:300}") long pollSeconds) {
+        this.giveawayScheduler = giveawayScheduler;
+        this.recurringGiveawayService = recurringGiveawayService;
+        this.pollMillis = TimeUnit.SECONDS.toMillis(pollSeconds);
+    }
+
+    public void start(Consumer<GiveawayEntity> instanceListener) {
+        this.instanceListener = instanceListener;
+        rearm(0);
+    }
+
+    // Schedules the task for the earliest next fire time, to be called when a template was created or deleted
+    public void rearm() {
+        rearm(0);
+    }
+
+    private synchronized void rearm(long minDelayMillis) {
+        if (instanceListener == null) {
+            return; // not started yet, start() arms the task
+        }
+
+        giveawayScheduler.cancel(GiveawayScheduler.TaskType.RECURRING, TASK_KEY);
+        Instant earliest = recurringGiveawayService.getEarliestNextFireTime();
+        long delay = earliest != null ? Math.min(earliest.toEpochMilli() - System.currentTimeMillis(), pollMillis) : pollMillis;
+        giveawayScheduler.schedule(GiveawayScheduler.TaskType.RECURRING, TASK_KEY, Math.max(delay, minDelayMillis), this::fire);
+    }
+
+    private void fire() {
+        int failures = 0;
+        try {
+            Instant now = Instant.now();
+            List<RecurringGiveawayEntity> due = recurringGiveawayService.getDueTemplates(now, BATCH_SIZE);
+            for (RecurringGiveawayEntity template : due) {
+                try {
+                    GiveawayEntity giveaway = recurringGiveawayService.createInstance(template, now);
+                    if (giveaway != null) {
+                        instanceListener.accept(giveaway);
+                    }
+                } catch (Exception e) {
+                    failures++;
+                    LOGGER.error("Failed to create the giveaway of recurring giveaway {}: ", template.getTitle(), e);
+                }
+            }
+        } finally {
+            // A template that failed is still due, retry it later instead of firing again right away.
+            // If the batch was full and nothing failed, the remaining due templates fire right away
+            rearm(failures > 0 ? RETRY_DELAY_MILLIS : 0);
+        }
+    }
+}
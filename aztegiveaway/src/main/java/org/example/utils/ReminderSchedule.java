@@ -0,0 +1,147 @@
+/**
+ * When the reminders of a giveaway are sent, parsed from a comma separated list like "75%, 95%, last 10m" or "every 6h":
+ * - N%: when N percent of the duration has passed (1 to 99)
+ * - last <duration>: the given time before the end, e.g. last 1h30m
+ * - every <duration>: repeatedly, the given time apart, counted from the start (at least 10 minutes)
+ * The schedule is stored with the giveaway as its normalized text, a giveaway without one uses 50%, 90%.
+ * Only the next reminder of a giveaway is computed and scheduled, the one after it is computed when it fires,
+ * so a giveaway has at most one pending reminder whatever its schedule.
+ */
+
+package org.example.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public final class ReminderSchedule {
+
+    public static final String DEFAULT = "50%, 90%";
+    public static final int MAX_LENGTH = 100; // length of the reminder_schedule column
+
+    private static final Pattern PERCENTAGE_PATTERN = Pattern.compile("(\\d{1,2})%");
+    private static final Pattern LAST_PATTERN = Pattern.compile("last\\s+(\\S+)");
+    private static final Pattern EVERY_PATTERN = Pattern.compile("every\\s+(\\S+)");
+    private static final Pattern DURATION_PATTERN = Pattern.compile("(\\d+[dhms])+");
+    private static final long MIN_INTERVAL_MILLIS = 10 * 60 * 1000L;
+    private static final ReminderSchedule DEFAULT_SCHEDULE = parse(DEFAULT);
+
+    private final int[] percentages;
+    private final long[] beforeEndMillis;
+    private final long[] intervalsMillis;
+    private final String text;
+
+    private ReminderSchedule(int[] percentages, long[] beforeEndMillis, long[] intervalsMillis, String text) {
+        this.percentages = percentages;
+        this.beforeEndMillis = beforeEndMillis;
+        this.intervalsMillis = intervalsMillis;
+        this.text = text;
+    }
+
+    public static ReminderSchedule defaultSchedule() {
+        return DEFAULT_SCHEDULE;
+    }
+
+    // The stored schedule of a giveaway, the default one if it has none or it cannot be read anymore
+    public static ReminderSchedule parseOrDefault(String text) {
+        ReminderSchedule schedule = parse(text);
+        return schedule != null ? schedule : DEFAULT_SCHEDULE;
+    }
+
+    /**
+     * Parses a reminder schedule
+     *
+     * @param text The schedule, e.g. "75%, 95%, last 10m"
+     * @return The schedule, or null if the text is empty, too long or one of its parts is invalid
+     */
+    public static ReminderSchedule parse(String text) {
+        if (text == null || text.isBlank()) {
+            return null;
+        }
+
+        List<Integer> percentages = new ArrayList<>();
+        List<Long> beforeEnd = new ArrayList<>();
+        List<Long> intervals = new ArrayList<>();
+        List<String> parts = new ArrayList<>();
+        for (String token : text.toLowerCase().split(",")) {
+            String part = token.trim().replaceAll("\\s+", " ");
+            Matcher percentage = PERCENTAGE_PATTERN.matcher(part);
+            Matcher last = LAST_PATTERN.matcher(part);
+            Matcher every = EVERY_PATTERN.matcher(part);
+            if (percentage.matches()) {
+                int value = Integer.parseInt(percentage.group(1));
+                if (value < 1) {
+                    return null;
+                }
+                percentages.add(value);
+            } else if (last.matches()) {
+                long millis = parseDuration(last.group(1));
+                if (millis <= 0) {
+                    return null;
+                }
+                beforeEnd.add(millis);
+            } else if (every.matches()) {
+                long millis = parseDuration(every.group(1));
+                if (millis < MIN_INTERVAL_MILLIS) {
+                    return null;
+                }
+                intervals.add(millis);
+            } else {
+                return null;
+            }
+            parts.add(part);
+        }
+
+        String normalized = String.join(", ", parts);
+        if (normalized.length() > MAX_LENGTH) {
+            return null;
+        }
+        return new ReminderSchedule(
+                percentages.stream().mapToInt(Integer::intValue).toArray(),
+                beforeEnd.stream().mapToLong(Long::longValue).toArray(),
+                intervals.stream().mapToLong(Long::longValue).toArray(),
+                normalized);
+    }
+
+    /**
+     * Computes the first reminder after the given time
+     *
+     * @param startMillis    The start of the giveaway (epoch milliseconds)
+     * @param durationMillis The duration of the giveaway
+     * @param afterMillis    The time after which the reminder must fall (epoch milliseconds), e.g. now or the previous reminder
+     * @return The time of the next reminder before the end of the giveaway (epoch milliseconds), or -1 if there is none
+     */
+    public long nextReminder(long startMillis, long durationMillis, long afterMillis) {
+        long endMillis = startMillis + durationMillis;
+        long next = Long.MAX_VALUE;
+
+        for (int percentage : percentages) {
+            next = earliest(next, startMillis + durationMillis * percentage / 100, afterMillis, startMillis);
+        }
+        for (long before : beforeEndMillis) {
+            next = earliest(next, endMillis - before, afterMillis, startMillis);
+        }
+        for (long interval : intervalsMillis) {
+            // The first multiple of the interval after the given time
+            long elapsed = Math.max(0, afterMillis - startMillis);
+            next = earliest(next, startMillis + (elapsed / interval + 1) * interval, afterMillis, startMillis);
+        }
+        return next < endMillis ? next : -1;
+    }
+
+    // The normalized text of the schedule, as stored with the giveaway
+    @Override
+    public String toString() {
+        return text;
+    }
+
+    private static long earliest(long current, long candidate, long afterMillis, long startMillis) {
+        return candidate > afterMillis && candidate > startMillis ? Math.min(current, candidate) : current;
+    }
+
+    // DurationParser ignores what it does not understand, a schedule must be exactly a duration
+    private static long parseDuration(String duration) {
+        return DURATION_PATTERN.matcher(duration).matches() ? DurationParser.parseDuration(duration) : 0;
+    }
+}
@@ -0,0 +1,72 @@
+/**
+ * Utility class to answer slash commands that were acknowledged with deferReply.
+ * The SlashCommandListener defers every command before handing it to the CommandExecutor, so the handlers must answer
+ * through the interaction hook instead of event.reply.
+ * The first answer replaces the deferred "thinking..." message when its visibility (ephemeral or public) matches the deferred one,
+ * otherwise the deferred message is deleted and the answer is sent as a follow-up with the requested visibility.
+ * Every further answer is sent as a follow-up.
+ */
+
+package org.example.utils;
+
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.interactions.InteractionHook;
+import net.dv8tion.jda.api.interactions.components.LayoutComponent;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+public class ReplyUtil {
+
+    // interaction ID -> visibility of the deferred reply that was not answered yet
+    private static final Map<Long, Boolean> deferredReplies = new ConcurrentHashMap<>();
+
+    private ReplyUtil() {
+    }
+
+    public static void defer(SlashCommandInteractionEvent event, boolean ephemeral) {
+        deferredReplies.put(event.getIdLong(), ephemeral);
+        event.deferReply(ephemeral).queue();
+    }
+
+    public static void reply(SlashCommandInteractionEvent event, String message, boolean ephemeral) {
+        Boolean deferredEphemeral = deferredReplies.remove(event.getIdLong());
+        InteractionHook hook = event.getHook();
+
+        if (deferredEphemeral == null && !event.isAcknowledged()) {
+            event.reply(message).setEphemeral(ephemeral).queue();
+        } else if (deferredEphemeral == null) {
+            hook.sendMessage(message).setEphemeral(ephemeral).queue();
+        } else if (deferredEphemeral == ephemeral) {
+            hook.editOriginal(message).queue();
+        } else {
+            // The follow-up must only be sent once the deferred message is gone, otherwise it would replace it
+            hook.deleteOriginal().flatMap(deleted -> hook.sendMessage(message).setEphemeral(ephemeral)).queue();
+        }
+    }
+
+    public static void replyEmbed(SlashCommandInteractionEvent event, MessageEmbed embed, Collection<? extends LayoutComponent> components,
+                                  boolean ephemeral, Consumer<Message> onSent) {
+        Boolean deferredEphemeral = deferredReplies.remove(event.getIdLong());
+        InteractionHook hook = event.getHook();
+
+        if (deferredEphemeral == null && !event.isAcknowledged()) {
+            event.replyEmbeds(embed).setComponents(components).setEphemeral(ephemeral).flatMap(InteractionHook::retrieveOriginal).queue(onSent);
+        } else if (deferredEphemeral == null) {
+            hook.sendMessageEmbeds(embed).setComponents(components).setEphemeral(ephemeral).queue(onSent);
+        } else if (deferredEphemeral == ephemeral) {
+            hook.editOriginalEmbeds(embed).setComponents(components).queue(onSent);
+        } else {
+            hook.deleteOriginal().flatMap(deleted -> hook.sendMessageEmbeds(embed).setComponents(components).setEphemeral(ephemeral)).queue(onSent);
+        }
+    }
+
+    // Forgets the deferred reply of the interaction. Returns true if the handler never answered it
+    public static boolean release(SlashCommandInteractionEvent event) {
+        return deferredReplies.remove(event.getIdLong()) != null;
+    }
+}
@@ -1,12 +1,20 @@
+/**
+ * Utility class that restores the scheduled tasks of unfinished giveaways when the bot starts.
+ * The local ScheduleSnapshot is restored first, then every unfinished giveaway is rescheduled from the database.
+ */
+
 package org.example.utils;
 
 import net.dv8tion.jda.api.EmbedBuilder;
 import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.sharding.ShardManager;
 import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
 import net.dv8tion.jda.api.entities.emoji.Emoji;
 
 import org.example.entities.GiveawayEntity;
+import org.example.entities.GiveawayStatus;
 import org.example.entities.WinnerEntity;
+import org.example.services.GiveawayLeaseService;
 import org.example.services.GiveawayService;
 import org.example.services.WinnerService;
 
@@ -14,84 +22,258 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.Instant;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 public class RescheduleUtil {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(RescheduleUtil.class);
-    private final JDA jda;
+    private static final int PAGE_SIZE = 100; // number of giveaways loaded per query at startup
+    private static final long INITIAL_RETRY_DELAY_MILLIS = 5_000;
+    private static final long MAX_RETRY_DELAY_MILLIS = 5 * 60_000;
+    private final ShardManager shardManager;
     private final GiveawayService giveawayService;
     private final WinnerService winnerService;
     private final LocalizationUtil localizationUtil;
+    private final GiveawayScheduler giveawayScheduler;
+    private final GiveawayLeaseService giveawayLeaseService;
+    private final ReactionReconciler reactionReconciler;
+    private final MessageDispatcher messageDispatcher;
+    private final RecurringGiveawayScheduler recurringGiveawayScheduler;
 
-    public RescheduleUtil(JDA jda, GiveawayService giveawayService, WinnerService winnerService, LocalizationUtil localizationUtil) {
-        this.jda = jda;
+    public RescheduleUtil(ShardManager shardManager, GiveawayService giveawayService, WinnerService winnerService, LocalizationUtil localizationUtil,
+                          GiveawayScheduler giveawayScheduler, GiveawayLeaseService giveawayLeaseService, ReactionReconciler reactionReconciler,
+                          MessageDispatcher messageDispatcher, RecurringGiveawayScheduler recurringGiveawayScheduler) {
+        this.shardManager = shardManager;
         this.giveawayService = giveawayService;
         this.winnerService = winnerService;
         this.localizationUtil = localizationUtil;
+        this.giveawayScheduler = giveawayScheduler;
+        this.giveawayLeaseService = giveawayLeaseService;
+        this.reactionReconciler = reactionReconciler;
+        this.messageDispatcher = messageDispatcher;
+        this.recurringGiveawayScheduler = recurringGiveawayScheduler;
     }
 
-    public void rescheduleActiveAndPlannedGiveaways() {
-        List<GiveawayEntity> activeGiveaways = giveawayService.getAllGiveaways();
-        GiveawayUtil giveawayUtil = new GiveawayUtil(localizationUtil);
+    // Reschedules the unfinished giveaways on a background thread, so the bot takes commands while the backlog loads
+    public void rescheduleInBackground() {
+        Thread thread = new Thread(() -> {
+            try {
+                awaitShardsReady(); // channels can only be resolved once the guild cache is loaded
+                Set<Long> restored = restoreFromSnapshot();
+                rescheduleActiveAndPlannedGiveaways(restored);
+                discardStaleRestored(restored);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                LOGGER.warn("Rescheduling of giveaways was interrupted.");
+            } catch (Exception e) {
+                LOGGER.error("An unknown error occurred while rescheduling giveaways: ", e);
+            } finally {
+                // Started after the unfinished giveaways so that none of them is scheduled twice, but whatever happened to them
+                giveawayLeaseService.setTakeoverListener(this::rescheduleTakenOver);
+                recurringGiveawayScheduler.start(giveaway -> reschedule(giveaway, new GiveawayUtil(localizationUtil, giveawayScheduler, messageDispatcher)));
+            }
+        }, "giveaway-rescheduler");
+        thread.setDaemon(true);
+        thread.start();
+    }
 
-        for (GiveawayEntity giveaway : activeGiveaways) {
-            if (hasGiveawayEnded(giveaway)) {
-                LOGGER.info("Giveaway {} has already ended. Skipping reschedule.", giveaway.getTitle());
-                continue;
+    // Shards log in one after another (Discord allows one login every 5 seconds), so wait for all of them
+    private void awaitShardsReady() throws InterruptedException {
+        while (shardManager.getShardsQueued() > 0) {
+            Thread.sleep(1000);
+        }
+        for (JDA shard : shardManager.getShards()) {
+            shard.awaitReady();
+        }
+    }
+
+    // Schedules the giveaways of the snapshot whose end is still ahead, without touching the database. Returns their IDs
+    private Set<Long> restoreFromSnapshot() {
+        long start = System.nanoTime();
+        GiveawayUtil giveawayUtil = new GiveawayUtil(localizationUtil, giveawayScheduler, messageDispatcher);
+        Set<Long> restored = new HashSet<>();
+        long currentTime = Instant.now().toEpochMilli();
+        for (GiveawayEntity giveaway : giveawayService.getCheckpointedGiveaways()) {
+            long remainingTime = giveaway.getStartTime().toEpochMilli() + giveaway.getDuration() - currentTime;
+            // Giveaways that ended while the bot was down need their reactions and the database, the database pass draws them
+            if (remainingTime > 0) {
+                try {
+                    giveawayUtil.scheduleRestoredGiveawayEnd(giveaway, shardManager, giveawayService, winnerService, remainingTime);
+                    restored.add(giveaway.getId());
+                } catch (Exception e) {
+                    LOGGER.error("Failed to restore giveaway {}, the database pass schedules it: ", giveaway.getTitle(), e);
+                }
             }
+        }
+        LOGGER.info("Restored {} giveaways from the schedule snapshot in {} ms", restored.size(), (System.nanoTime() - start) / 1_000_000);
+        return restored;
+    }
 
-            long currentTime = Instant.now().toEpochMilli();
-            long startTime = giveaway.getStartTime().toEpochMilli();
-            long remainingTime = giveaway.getDuration() - (currentTime - startTime);
+    // The restored giveaways the database did not return as unfinished ended or were deleted while the bot was down
+    private void discardStaleRestored(Set<Long> restored) {
+        for (GiveawayEntity giveaway : giveawayService.getCheckpointedGiveaways()) {
+            if (restored.contains(giveaway.getId())) {
+                cancelRestored(giveaway.getMessageId());
+                try {
+                    giveawayService.discardCheckpoint(giveaway.getId());
+                    LOGGER.info("Restored giveaway {} is not unfinished anymore, cancelled it.", giveaway.getTitle());
+                } catch (Exception e) {
+                    LOGGER.error("Failed to discard the checkpoint of giveaway {}: ", giveaway.getTitle(), e);
+                }
+            }
+        }
+    }
 
-            if (startTime > currentTime) {
-                scheduleFutureGiveaway(giveaway, startTime, currentTime, giveawayUtil);
-            } else if (remainingTime > 0) {
-                giveawayUtil.scheduleGiveawayEnd(giveaway, jda, giveawayService, winnerService, remainingTime);
-                LOGGER.info("Rescheduled giveaway {} with remaining time {} ms", giveaway.getTitle(), remainingTime);
-            } else {
-                // Handle ended giveaways gracefully
-                giveaway.getEntries().size(); // Initialize the collection
-                giveawayUtil.endGiveaway(giveaway, jda, giveaway.getMessageId(), giveawayService, winnerService);
+    private void cancelRestored(long messageId) {
+        giveawayScheduler.cancel(GiveawayScheduler.TaskType.END, messageId);
+        giveawayScheduler.cancel(GiveawayScheduler.TaskType.REMINDER, messageId);
+    }
+
+    // Streams the unfinished giveaways page by page (keyset on the ID), ended giveaways and entries are never loaded.
+    // The restored giveaways that are found are removed from the given set
+    private void rescheduleActiveAndPlannedGiveaways(Set<Long> restored) throws InterruptedException {
+        GiveawayUtil giveawayUtil = new GiveawayUtil(localizationUtil, giveawayScheduler, messageDispatcher);
+        long afterId = 0L;
+        int rescheduled = 0;
+
+        List<GiveawayEntity> page;
+        do {
+            page = loadUnfinishedGiveaways(afterId);
+            for (GiveawayEntity giveaway : page) {
+                afterId = giveaway.getId();
+                if (restored.remove(giveaway.getId())) {
+                    if (!giveawayScheduler.isScheduled(GiveawayScheduler.TaskType.END, giveaway.getMessageId())) {
+                        // The restored end fired meanwhile and is ending the giveaway, scheduling it again would announce it twice
+                        continue;
+                    }
+                    // The database row is the truth, the tasks restored from the snapshot are replaced
+                    cancelRestored(giveaway.getMessageId());
+                }
+                // One giveaway that cannot be rescheduled must not keep the others from it
+                try {
+                    reschedule(giveaway, giveawayUtil);
+                } catch (Exception e) {
+                    LOGGER.error("Failed to reschedule giveaway {}: ", giveaway.getTitle(), e);
+                }
+            }
+            rescheduled += page.size();
+        } while (page.size() == PAGE_SIZE);
+
+        LOGGER.info("Rescheduled {} unfinished giveaways.", rescheduled);
+    }
+
+    // Retries until the page is read (e.g. the database is still starting), waiting longer after every failure
+    private List<GiveawayEntity> loadUnfinishedGiveaways(long afterId) throws InterruptedException {
+        long backoffMillis = INITIAL_RETRY_DELAY_MILLIS;
+        while (true) {
+            try {
+                return giveawayService.getUnfinishedGiveaways(afterId, PAGE_SIZE);
+            } catch (Exception e) {
+                LOGGER.error("Failed to load the unfinished giveaways, retrying in {} s: {}", backoffMillis / 1000, e.getMessage());
+                Thread.sleep(backoffMillis);
+                backoffMillis = Math.min(backoffMillis * 2, MAX_RETRY_DELAY_MILLIS);
             }
         }
     }
 
-    private boolean hasGiveawayEnded(GiveawayEntity giveaway) {
+    // Called by the lease heartbeat when this instance took over a giveaway from an instance that died
+    private void rescheduleTakenOver(long giveawayId) {
+        GiveawayEntity giveaway = giveawayService.getGiveawayById(giveawayId);
+        if (giveaway == null || giveaway.getStatus() == GiveawayStatus.ENDED) {
+            giveawayLeaseService.release(giveawayId);
+            return;
+        }
+        reschedule(giveaway, new GiveawayUtil(localizationUtil, giveawayScheduler, messageDispatcher));
+    }
+
+    private void reschedule(GiveawayEntity giveaway, GiveawayUtil giveawayUtil) {
+        if (!giveawayService.acquireLease(giveaway)) {
+            LOGGER.debug("Giveaway {} is owned by another instance. Skipping reschedule.", giveaway.getTitle());
+            return;
+        }
+
+        if (hasLegacyGiveawayEnded(giveaway)) {
+            LOGGER.info("Giveaway {} has already ended. Skipping reschedule.", giveaway.getTitle());
+            giveawayService.markGiveawayEnded(giveaway.getId());
+            return;
+        }
+
+        long currentTime = Instant.now().toEpochMilli();
+        long startTime = giveaway.getStartTime().toEpochMilli();
+        long remainingTime = giveaway.getDuration() - (currentTime - startTime);
+
+        if (giveaway.getStatus() == GiveawayStatus.DRAWING) {
+            // The winners were drawn before the restart but not announced, ending again only resends the announcement
+            giveawayUtil.endGiveaway(giveaway, shardManager, giveaway.getMessageId(), giveawayService, winnerService);
+        } else if (giveaway.getStatus() == GiveawayStatus.PLANNED || startTime > currentTime) {
+            // A planned giveaway whose start passed while the bot was down is started right away
+            scheduleFutureGiveaway(giveaway, Math.max(startTime, currentTime), currentTime, giveawayUtil);
+        } else if (remainingTime > 0) {
+            giveawayUtil.scheduleGiveawayEnd(giveaway, shardManager, giveawayService, winnerService, remainingTime);
+            reconcileReactions(giveaway);
+            LOGGER.info("Rescheduled giveaway {} with remaining time {} ms", giveaway.getTitle(), remainingTime);
+        } else {
+            // The giveaway ended while the bot was down, draw it once the reactions of the downtime are known
+            // The draw runs on the giveaway scheduler, not on the JDA thread that completes the reconciliation
+            reconcileReactions(giveaway).whenComplete((recovered, error) ->
+                    giveawayScheduler.schedule(GiveawayScheduler.TaskType.END, giveaway.getMessageId(), 0,
+                            () -> giveawayUtil.endOwnedGiveaway(giveaway, shardManager, giveawayService, winnerService)));
+        }
+    }
+
+    // Completes once the reactions are read (even if that failed, the draw must not wait forever)
+    private CompletableFuture<Integer> reconcileReactions(GiveawayEntity giveaway) {
+        TextChannel textChannel = GiveawayUtil.getTextChannel(shardManager, giveaway.getGuildId(), giveaway.getChannelId());
+        if (textChannel == null) {
+            return CompletableFuture.completedFuture(0);
+        }
+        return reactionReconciler.reconcile(textChannel, giveaway.getId(), giveaway.getMessageId());
+    }
+
+    // Rows created before the status column existed have no status, so the winners table is the only hint that they ended
+    private boolean hasLegacyGiveawayEnded(GiveawayEntity giveaway) {
+        if (giveaway.getStatus() != null) {
+            return false;
+        }
         List<WinnerEntity> winners = winnerService.getWinnersByGiveawayMessageIdAndGuildId(giveaway.getMessageId(), giveaway.getGuildId());
         return !winners.isEmpty();
     }
 
     private void scheduleFutureGiveaway(GiveawayEntity giveaway, long startTime, long currentTime, GiveawayUtil giveawayUtil) {
-        new Timer().schedule(new TimerTask() {
-            @Override
-            public void run() {
-                TextChannel textChannel = jda.getTextChannelById(giveaway.getChannelId());
-                if (textChannel != null) {
-                    EmbedBuilder embedBuilder = EmbedUtil.createGiveawayEmbed(
-                            giveaway.getTitle(),
-                            giveaway.getPrize(),
-                            giveaway.getDuration() / 1000 + "s",
-                            giveaway.getNumberOfWinners(),
-                            Instant.now().plusMillis(giveaway.getDuration()),
-                            giveaway.getGuildId(),
-                            localizationUtil
-                    );
-
-                    textChannel.sendMessageEmbeds(embedBuilder.build()).queue(message -> {
-                        message.addReaction(Emoji.fromUnicode("🎉")).queue();
-                        giveaway.setMessageId(message.getIdLong());
-                        giveawayService.updateGiveaway(giveaway);
-                        giveawayUtil.scheduleGiveawayEnd(giveaway, jda, giveawayService, winnerService, giveaway.getDuration());
+        giveawayScheduler.schedule(GiveawayScheduler.TaskType.PLANNED_START, giveaway.getId(), startTime - currentTime, () -> {
+            TextChannel textChannel = GiveawayUtil.getTextChannel(shardManager, giveaway.getGuildId(), giveaway.getChannelId());
+            if (textChannel != null) {
+                EmbedBuilder embedBuilder = EmbedUtil.createGiveawayEmbed(
+                        giveaway.getTitle(),
+                        giveaway.getPrize(),
+                        giveaway.getDuration() / 1000 + "s",
+                        giveaway.getNumberOfWinners(),
+                        Instant.now().plusMillis(giveaway.getDuration()),
+                        giveaway.getGuildId(),
+                        localizationUtil
+                );
+
+                textChannel.sendMessageEmbeds(embedBuilder.build()).queue(message -> {
+                    message.addReaction(Emoji.fromUnicode("🎉")).queue();
+                    giveaway.setMessageId(message.getIdLong());
+                    giveaway.setStatus(GiveawayStatus.ACTIVE);
+                    // Called on a JDA thread, the database work runs on the scheduler workers
+                    giveawayScheduler.execute("start of giveaway " + giveaway.getTitle(), () -> {
+                        if (!giveawayService.updateGiveaway(giveaway)) {
+                            // The giveaway was deleted or changed meanwhile, the message would never end
+                            message.delete().queue();
+                            return;
+                        }
+                        giveawayUtil.scheduleGiveawayEnd(giveaway, shardManager, giveawayService, winnerService, giveaway.getDuration());
                     });
-                } else {
-                    LOGGER.warn("Text channel not found for giveaway {}: {}", giveaway.getTitle(), giveaway.getChannelId());
-                }
+                });
+            } else {
+                LOGGER.warn("Text channel not found for giveaway {}: {}", giveaway.getTitle(), giveaway.getChannelId());
             }
-        }, startTime - currentTime);
+        });
 
         LOGGER.info("Scheduled future giveaway {} to start at {}", giveaway.getTitle(), giveaway.getStartTime());
     }
@@ -10,9 +10,15 @@ import net.dv8tion.jda.api.interactions.commands.OptionType;
 import net.dv8tion.jda.api.interactions.commands.build.Commands;
 import net.dv8tion.jda.api.interactions.commands.build.OptionData;
 import net.dv8tion.jda.api.interactions.commands.build.SubcommandData;
+import net.dv8tion.jda.api.sharding.ShardManager;
 
 public class SlashCommandRegistrationUtil {
 
+    // Slash commands are global, registering them through one shard is enough
+    public static void registerSlashCommands(ShardManager shardManager) {
+        registerSlashCommands(shardManager.getShards().get(0));
+    }
+
     public static void registerSlashCommands(JDA jda) {
         jda.updateCommands().addCommands(
                 Commands.slash("giveaway", "Manage giveaways")
@@ -22,7 +28,8 @@ public class SlashCommandRegistrationUtil {
                                 createRollSubcommand(),
                                 createDeleteSubcommand(),
                                 createWinnersSubcommand(),
-                                createPlanSubcommand()
+                                createPlanSubcommand(),
+                                createRecurringSubcommand()
                         ),
                 Commands.slash("set", "Set the language preference for the bot")
                         .addSubcommands(
@@ -37,7 +44,8 @@ public class SlashCommandRegistrationUtil {
                 .addOption(OptionType.STRING, "prize", "The prize of the giveaway", true)
                 .addOption(OptionType.STRING, "duration", "The duration of the giveaway (e.g., 1d, 1h30m, 2d3h, etc.)", true)
                 .addOption(OptionType.INTEGER, "winners", "The number of winners", true)
-                .addOption(OptionType.CHANNEL, "channel", "The channel where the giveaway will be announced", false);
+                .addOption(OptionType.CHANNEL, "channel", "The channel where the giveaway will be announced", false)
+                .addOption(OptionType.STRING, "reminders", "When to remind (e.g., 75%, 95%, last 10m or every 6h). Default: 50%, 90%", false);
     }
 
     private static SubcommandData createRerollSubcommand() {
@@ -69,7 +77,20 @@ public class SlashCommandRegistrationUtil {
                 .addOption(OptionType.STRING, "prize", "The prize of the giveaway", true)
                 .addOption(OptionType.STRING, "duration", "The duration of the giveaway (e.g., 1d, 1h30m, 2d3h, etc.)", true)
                 .addOption(OptionType.INTEGER, "winners", "The number of winners", true)
-                .addOption(OptionType.CHANNEL, "channel", "The channel where the giveaway will be announced", false);
+                .addOption(OptionType.CHANNEL, "channel", "The channel where the giveaway will be announced", false)
+                .addOption(OptionType.STRING, "reminders", "When to remind (e.g., 75%, 95%, last 10m or every 6h). Default: 50%, 90%", false);
+    }
+
+    private static SubcommandData createRecurringSubcommand() {
+        return new SubcommandData("recurring", "Schedule a giveaway that starts again and again")
+                .addOption(OptionType.STRING, "title", "The title of the giveaway, every instance is numbered", true)
+                .addOption(OptionType.STRING, "prize", "The prize of the giveaway", true)
+                .addOption(OptionType.STRING, "schedule", "When each giveaway starts, as a cron expression (e.g., 0 18 * * MON for every Monday 18:00)", true)
+                .addOption(OptionType.STRING, "duration", "The duration of each giveaway (e.g., 1d, 1h30m, 2d3h, etc.)", true)
+                .addOption(OptionType.INTEGER, "winners", "The number of winners", true)
+                .addOption(OptionType.STRING, "timezone", "The time zone of the schedule (e.g., Europe/Bucharest). Default: UTC", false)
+                .addOption(OptionType.CHANNEL, "channel", "The channel where the giveaways will be announced", false)
+                .addOption(OptionType.STRING, "reminders", "When to remind (e.g., 75%, 95%, last 10m or every 6h). Default: 50%, 90%", false);
     }
 
     private static SubcommandData createSetLanguageSubcommand() {
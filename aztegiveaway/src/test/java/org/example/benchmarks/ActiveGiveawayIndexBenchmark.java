@@ -0,0 +1,64 @@
+/**
+ * JMH benchmark of the lookup done for every reaction the bot receives (see ActiveGiveawayIndex).
+ * Most reactions are on ordinary messages, so the miss is the common case.
+ * Run it with the benchmark profile: mvn -P benchmark verify -Djmh.include=ActiveGiveawayIndexBenchmark
+ */
+
+package org.example.benchmarks;
+
+import org.example.services.ActiveGiveawayIndex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ActiveGiveawayIndexBenchmark {
+
+    private static final long FIRST_MESSAGE_ID = 1_250_000_000_000_000_000L;
+
+    // Number of active giveaways in the index
+    @Param({"100", "100000"})
+    private int activeGiveaways;
+
+    private ActiveGiveawayIndex activeGiveawayIndex;
+    private long nextMessage;
+
+    @Setup
+    public void setUp() {
+        activeGiveawayIndex = new ActiveGiveawayIndex(null);
+        // Every other message ID is a giveaway, the others are ordinary messages
+        for (int i = 0; i < activeGiveaways; i++) {
+            activeGiveawayIndex.put(FIRST_MESSAGE_ID + 2L * i, i + 1);
+        }
+    }
+
+    // A reaction on an ordinary message
+    @Benchmark
+    public long miss() {
+        long message = nextMessage++ % activeGiveaways;
+        return activeGiveawayIndex.get(FIRST_MESSAGE_ID + 2 * message + 1);
+    }
+
+    // A reaction on a giveaway message
+    @Benchmark
+    public long hit() {
+        long message = nextMessage++ % activeGiveaways;
+        return activeGiveawayIndex.get(FIRST_MESSAGE_ID + 2 * message);
+    }
+}
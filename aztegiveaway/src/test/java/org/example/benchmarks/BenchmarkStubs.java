@@ -0,0 +1,42 @@
+/**
+ * Stubs shared by the benchmarks, so that the measured code runs without Spring and without a database.
+ */
+
+package org.example.benchmarks;
+
+import org.example.config.LocaleConfig;
+import org.example.services.LanguagePreferenceService;
+import org.example.utils.LocalizationUtil;
+
+import java.util.Locale;
+
+final class BenchmarkStubs {
+
+    private BenchmarkStubs() {
+    }
+
+    // LocaleConfig that always answers with the given locale, without any cache
+    static LocaleConfig fixedLocaleConfig(Locale locale) {
+        return new LocaleConfig(null, 1, 1) {
+            @Override
+            public Locale getLocaleForGuild(Long guildId) {
+                return locale;
+            }
+        };
+    }
+
+    // The real LocaleConfig cache, backed by a preference service that never queries the database
+    static LocaleConfig cachedLocaleConfig(String language) {
+        LanguagePreferenceService languagePreferenceService = new LanguagePreferenceService(null) {
+            @Override
+            public String getLanguagePreference(Long guildId) {
+                return language;
+            }
+        };
+        return new LocaleConfig(languagePreferenceService, 10_000, 10);
+    }
+
+    static LocalizationUtil localizationUtil(LocaleConfig localeConfig) {
+        return new LocalizationUtil(localeConfig);
+    }
+}
@@ -0,0 +1,38 @@
+/**
+ * JMH benchmark of DurationParser.parseDuration, which runs for every created and planned giveaway.
+ * Run it with the benchmark profile: mvn -P benchmark verify -Djmh.include=DurationParserBenchmark
+ */
+
+package org.example.benchmarks;
+
+import org.example.utils.DurationParser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DurationParserBenchmark {
+
+    @Param({"30s", "1d2h30m15s", " 12h ", "invalid"})
+    private String duration;
+
+    @Benchmark
+    public long parseDuration() {
+        return DurationParser.parseDuration(duration);
+    }
+}
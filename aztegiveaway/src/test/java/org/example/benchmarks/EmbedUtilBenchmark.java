@@ -0,0 +1,80 @@
+/**
+ * JMH benchmark of the embeds built by EmbedUtil: the giveaway embed and the pages of the winners list.
+ * The localized labels come from a LocalizationUtil backed by a stubbed LocaleConfig.
+ * Run it with the benchmark profile: mvn -P benchmark verify -Djmh.include=EmbedUtilBenchmark
+ */
+
+package org.example.benchmarks;
+
+import net.dv8tion.jda.api.EmbedBuilder;
+
+import org.example.config.LocaleConfig;
+import org.example.utils.EmbedUtil;
+import org.example.utils.LocalizationUtil;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmbedUtilBenchmark {
+
+    private static final Long GUILD_ID = 1L;
+
+    @Param({"100", "10000"})
+    private int winnerCount;
+
+    private LocalizationUtil localizationUtil;
+    private Instant endTime;
+    private List<String> winnerMessages;
+
+    @Setup
+    public void setUp() {
+        localizationUtil = BenchmarkStubs.localizationUtil(BenchmarkStubs.fixedLocaleConfig(LocaleConfig.ENGLISH));
+        endTime = Instant.now().plusSeconds(3600);
+        winnerMessages = new ArrayList<>(winnerCount);
+        for (int i = 0; i < winnerCount; i++) {
+            winnerMessages.add("<@" + (100_000_000_000_000_000L + i) + "> (Giveaway: Giveaway " + (i / 3) + ")\n");
+        }
+    }
+
+    @Benchmark
+    public EmbedBuilder createGiveawayEmbed() {
+        return EmbedUtil.createGiveawayEmbed("Giveaway", "Nitro", "1d", 3, endTime, GUILD_ID, localizationUtil);
+    }
+
+    // Every page of the winners list, as /giveaway winners did before the keyset pagination
+    @Benchmark
+    public List<EmbedBuilder> createEveryPage() {
+        int totalPages = (winnerCount + 4) / 5;
+        List<EmbedBuilder> pages = new ArrayList<>(totalPages);
+        for (int i = 0; i < totalPages; i++) {
+            pages.add(EmbedUtil.createPageEmbed(winnerMessages.subList(i * 5, Math.min(i * 5 + 5, winnerCount)), i, totalPages));
+        }
+        return pages;
+    }
+
+    // A single page, as /giveaway winners renders it now
+    @Benchmark
+    public EmbedBuilder createPageEmbed() {
+        return EmbedUtil.createPageEmbed(winnerMessages.subList(0, 5), 0, winnerCount / 5);
+    }
+}
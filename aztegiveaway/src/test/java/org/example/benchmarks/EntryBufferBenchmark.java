@@ -0,0 +1,83 @@
+/**
+ * JMH benchmark of the entry deduplication done for every giveaway reaction.
+ * The entries are not part of GiveawayEntity anymore, the deduplication happens in EntryBufferService.addEntry.
+ * The service never flushes during the benchmark, so no database is needed.
+ * Run it with the benchmark profile: mvn -P benchmark verify -Djmh.include=EntryBufferBenchmark
+ */
+
+package org.example.benchmarks;
+
+import org.example.services.EntryBufferService;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntryBufferBenchmark {
+
+    private static final long DUPLICATE_GIVEAWAY_ID = 0L;
+
+    // Number of users that already entered the giveaway of the duplicate benchmark
+    @Param({"1000", "100000"})
+    private int entryCount;
+
+    private EntryBufferService entryBufferService;
+    private long nextDuplicateUser;
+    private long nextNewUser;
+    private long newEntriesGiveawayId;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        entryBufferService = new EntryBufferService(null, null, Integer.MAX_VALUE, TimeUnit.DAYS.toMillis(1));
+        for (long user = 0; user < entryCount; user++) {
+            entryBufferService.addEntry(DUPLICATE_GIVEAWAY_ID, user);
+        }
+        nextDuplicateUser = 0;
+        nextNewUser = 0;
+        newEntriesGiveawayId = 1L;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        // Nothing may be flushed, there is no database
+        entryBufferService.discard(DUPLICATE_GIVEAWAY_ID);
+        entryBufferService.discard(newEntriesGiveawayId);
+        entryBufferService.shutdown();
+    }
+
+    // A reaction of a user that already entered
+    @Benchmark
+    public boolean duplicateEntry() {
+        long user = nextDuplicateUser++ % entryCount;
+        return entryBufferService.addEntry(DUPLICATE_GIVEAWAY_ID, user);
+    }
+
+    // A reaction of a new user. The giveaway is replaced every entryCount users to keep the heap bounded
+    @Benchmark
+    public boolean newEntry() {
+        long user = nextNewUser++;
+        if (user > 0 && user % entryCount == 0) {
+            entryBufferService.discard(newEntriesGiveawayId);
+            newEntriesGiveawayId++;
+        }
+        return entryBufferService.addEntry(newEntriesGiveawayId, user);
+    }
+}
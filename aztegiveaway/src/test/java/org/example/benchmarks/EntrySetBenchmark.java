@@ -0,0 +1,125 @@
+/**
+ * JMH benchmark comparing EntrySet (sorted long array) with the previous representation of the entries,
+ * a List<Long> filtered through a HashSet<Long> of the previous winners.
+ * Building the list allocates a boxed Long per entry (about 24 bytes plus the 4-8 bytes reference), the set 8 bytes per entry.
+ * Run it with the benchmark profile: mvn -P benchmark verify -Djmh.include=EntrySetBenchmark
+ * The memory is compared with the gc profiler (allocated bytes per operation), e.g. from the IDE with org.openjdk.jmh.Main EntrySetBenchmark -prof gc
+ */
+
+package org.example.benchmarks;
+
+import org.example.utils.EntrySet;
+import org.example.utils.FairRandomizer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntrySetBenchmark {
+
+    private static final int NUMBER_OF_WINNERS = 50;
+
+    @Param({"1000", "100000", "500000"})
+    private int entryCount;
+
+    // The rows as read from the database, in primary key order
+    private long[] rows;
+    private List<Long> entryList;
+    private EntrySet entrySet;
+    private Set<Long> previousWinnerSet;
+    private EntrySet previousWinners;
+    private long probe;
+
+    @Setup
+    public void setUp() {
+        // Snowflake-like user IDs
+        rows = LongStream.range(0, entryCount).map(i -> 100_000_000_000_000_000L + i * 7919).toArray();
+        entryList = new ArrayList<>(entryCount);
+        for (long row : rows) {
+            entryList.add(row);
+        }
+        entrySet = EntrySet.ofSorted(rows.clone(), rows.length);
+        long[] winners = FairRandomizer.selectWinners(rows, NUMBER_OF_WINNERS);
+        previousWinners = EntrySet.of(winners);
+        previousWinnerSet = LongStream.of(winners).boxed().collect(Collectors.toSet());
+    }
+
+    // Loading the entries of a giveaway
+    @Benchmark
+    public List<Long> loadList() {
+        List<Long> entries = new ArrayList<>();
+        for (long row : rows) {
+            entries.add(row);
+        }
+        return entries;
+    }
+
+    @Benchmark
+    public EntrySet loadEntrySet() {
+        long[] buffer = new long[1024];
+        int size = 0;
+        for (long row : rows) {
+            if (size == buffer.length) {
+                buffer = Arrays.copyOf(buffer, size * 2);
+            }
+            buffer[size++] = row;
+        }
+        return EntrySet.ofSorted(buffer, size);
+    }
+
+    // Has a user entered
+    @Benchmark
+    public boolean containsList() {
+        return entryList.contains(rows[(int) (probe++ % entryCount)]);
+    }
+
+    @Benchmark
+    public boolean containsEntrySet() {
+        return entrySet.contains(rows[(int) (probe++ % entryCount)]);
+    }
+
+    // Drawing the winners
+    @Benchmark
+    public List<Long> drawList() {
+        return FairRandomizer.selectWinners(entryList, NUMBER_OF_WINNERS);
+    }
+
+    @Benchmark
+    public long[] drawEntrySet() {
+        return entrySet.draw(NUMBER_OF_WINNERS);
+    }
+
+    // Drawing the winners of a reroll: filtering the list first, or skipping the previous winners while drawing
+    @Benchmark
+    public List<Long> rerollList() {
+        List<Long> eligible = entryList.stream().filter(entry -> !previousWinnerSet.contains(entry)).collect(Collectors.toList());
+        return FairRandomizer.selectWinners(eligible, NUMBER_OF_WINNERS);
+    }
+
+    @Benchmark
+    public long[] rerollDrawExcluding() {
+        return entrySet.drawExcluding(NUMBER_OF_WINNERS, previousWinners);
+    }
+}
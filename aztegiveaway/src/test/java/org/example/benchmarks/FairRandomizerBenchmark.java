@@ -0,0 +1,82 @@
+/**
+ * JMH benchmark comparing the winner draw of FairRandomizer with the previous implementation,
+ * which shuffled the whole list with SecureRandom and returned a subList view of it.
+ * Run it from the IDE through the main method, or with the benchmark profile: mvn -P benchmark verify -Djmh.include=FairRandomizerBenchmark
+ */
+
+package org.example.benchmarks;
+
+import org.example.utils.FairRandomizer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FairRandomizerBenchmark {
+
+    private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+
+    @Param({"1000", "100000", "1000000"})
+    private int entryCount;
+
+    @Param({"1", "50"})
+    private int numberOfWinners;
+
+    private List<Long> entryList;
+    private long[] entryArray;
+
+    @Setup
+    public void setUp() {
+        // Snowflake-like user IDs
+        entryArray = LongStream.range(0, entryCount).map(i -> 100_000_000_000_000_000L + i * 7919).toArray();
+        entryList = new ArrayList<>(entryCount);
+        for (long entry : entryArray) {
+            entryList.add(entry);
+        }
+    }
+
+    // The implementation before the partial Fisher-Yates draw
+    @Benchmark
+    public List<Long> legacyFullShuffle() {
+        Collections.shuffle(entryList, SECURE_RANDOM);
+        return entryList.subList(0, Math.min(numberOfWinners, entryList.size()));
+    }
+
+    @Benchmark
+    public List<Long> partialFisherYatesList() {
+        return FairRandomizer.selectWinners(entryList, numberOfWinners);
+    }
+
+    @Benchmark
+    public long[] partialFisherYatesArray() {
+        return FairRandomizer.selectWinners(entryArray, numberOfWinners);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(FairRandomizerBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,53 @@
+/**
+ * JMH benchmark of LocalizationUtil.getLocalizedMessage.
+ * fixedLocale measures the bundle lookup alone (stubbed LocaleConfig), cachedLocale adds the LocaleConfig cache hit.
+ * Run it with the benchmark profile: mvn -P benchmark verify -Djmh.include=LocalizationUtilBenchmark
+ */
+
+package org.example.benchmarks;
+
+import org.example.config.LocaleConfig;
+import org.example.utils.LocalizationUtil;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LocalizationUtilBenchmark {
+
+    private static final Long GUILD_ID = 1L;
+
+    private LocalizationUtil fixedLocale;
+    private LocalizationUtil cachedLocale;
+
+    @Setup
+    public void setUp() {
+        fixedLocale = BenchmarkStubs.localizationUtil(BenchmarkStubs.fixedLocaleConfig(LocaleConfig.ROMANIAN));
+        cachedLocale = BenchmarkStubs.localizationUtil(BenchmarkStubs.cachedLocaleConfig("ro"));
+    }
+
+    @Benchmark
+    public String fixedLocale() {
+        return fixedLocale.getLocalizedMessage(GUILD_ID, "giveaway_winner_message");
+    }
+
+    @Benchmark
+    public String cachedLocale() {
+        return cachedLocale.getLocalizedMessage(GUILD_ID, "giveaway_winner_message");
+    }
+}
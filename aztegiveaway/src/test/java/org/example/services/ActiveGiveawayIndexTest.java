@@ -0,0 +1,94 @@
+package org.example.services;
+
+import org.example.repositories.GiveawayRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ActiveGiveawayIndexTest {
+
+    @Mock
+    private GiveawayRepository giveawayRepository;
+
+    private ActiveGiveawayIndex activeGiveawayIndex;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        activeGiveawayIndex = new ActiveGiveawayIndex(giveawayRepository);
+    }
+
+    @Test
+    void testPutAndGet() {
+        activeGiveawayIndex.put(1000L, 1L);
+
+        assertEquals(1L, activeGiveawayIndex.get(1000L));
+        assertEquals(ActiveGiveawayIndex.NO_GIVEAWAY, activeGiveawayIndex.get(2000L));
+        assertEquals(1, activeGiveawayIndex.size());
+    }
+
+    @Test
+    void testMessageIdZeroIsNeverIndexed() {
+        activeGiveawayIndex.put(0L, 1L);
+
+        assertEquals(ActiveGiveawayIndex.NO_GIVEAWAY, activeGiveawayIndex.get(0L));
+        assertEquals(0, activeGiveawayIndex.size());
+    }
+
+    @Test
+    void testGrowsAndRemovesWithoutLosingOtherEntries() {
+        // Consecutive snowflake-like IDs, enough to grow the table several times
+        long firstMessageId = 1_250_000_000_000_000_000L;
+        for (int i = 0; i < 5000; i++) {
+            activeGiveawayIndex.put(firstMessageId + i, i + 1);
+        }
+        for (int i = 0; i < 5000; i += 2) {
+            activeGiveawayIndex.remove(firstMessageId + i);
+        }
+
+        assertEquals(2500, activeGiveawayIndex.size());
+        for (int i = 0; i < 5000; i++) {
+            long expected = i % 2 == 0 ? ActiveGiveawayIndex.NO_GIVEAWAY : i + 1;
+            assertEquals(expected, activeGiveawayIndex.get(firstMessageId + i), "message " + i);
+        }
+    }
+
+    @Test
+    void testRemoveGiveaway() {
+        activeGiveawayIndex.put(1000L, 1L);
+        activeGiveawayIndex.put(2000L, 2L);
+
+        activeGiveawayIndex.removeGiveaway(1L);
+
+        assertEquals(ActiveGiveawayIndex.NO_GIVEAWAY, activeGiveawayIndex.get(1000L));
+        assertEquals(2L, activeGiveawayIndex.get(2000L));
+    }
+
+    @Test
+    void testLoad_ReadsEveryPage() {
+        List<Object[]> firstPage = new ArrayList<>();
+        for (long id = 1; id <= 1000; id++) {
+            firstPage.add(new Object[]{id * 10, id});
+        }
+        List<Object[]> secondPage = new ArrayList<>();
+        secondPage.add(new Object[]{10010L, 1001L});
+        when(giveawayRepository.findActiveMessageIds(eq(0L), any(Pageable.class))).thenReturn(firstPage);
+        when(giveawayRepository.findActiveMessageIds(eq(1000L), any(Pageable.class))).thenReturn(secondPage);
+
+        activeGiveawayIndex.load();
+
+        assertEquals(1001, activeGiveawayIndex.size());
+        assertEquals(1001L, activeGiveawayIndex.get(10010L));
+        verify(giveawayRepository, times(2)).findActiveMessageIds(anyLong(), any(Pageable.class));
+    }
+}
@@ -0,0 +1,127 @@
+package org.example.services;
+
+import org.example.repositories.GiveawayRepository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class EntryBufferServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private GiveawayRepository giveawayRepository;
+
+    private ActiveGiveawayIndex activeGiveawayIndex;
+    private EntryBufferService entryBufferService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        // Long interval so that only explicit flushes run during the tests
+        activeGiveawayIndex = new ActiveGiveawayIndex(giveawayRepository);
+        entryBufferService = new EntryBufferService(jdbcTemplate, activeGiveawayIndex, 500, 60_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        entryBufferService.shutdown();
+    }
+
+    @Test
+    void testResolveGiveawayId_UsesTheIndex() {
+        activeGiveawayIndex.put(10L, 1L);
+
+        assertEquals(1L, entryBufferService.resolveGiveawayId(10L));
+        verifyNoInteractions(giveawayRepository);
+    }
+
+    @Test
+    void testResolveGiveawayId_NotFound() {
+        assertNull(entryBufferService.resolveGiveawayId(10L));
+        verifyNoInteractions(giveawayRepository);
+    }
+
+    @Test
+    void testAddEntry_DeduplicatesPendingEntries() {
+        assertTrue(entryBufferService.addEntry(1L, 200L));
+        assertFalse(entryBufferService.addEntry(1L, 200L), "Pending entry should be rejected");
+        assertTrue(entryBufferService.addEntry(2L, 200L), "Same user can enter another giveaway");
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void testAddEntries_QueuesOnlyNewUsers() {
+        entryBufferService.addEntry(1L, 100L);
+
+        assertEquals(2, entryBufferService.addEntries(1L, List.of(100L, 200L, 300L)));
+        assertEquals(0, entryBufferService.addEntries(1L, List.of(200L, 300L)));
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFlush_WritesPendingEntriesInOneBatch() {
+        entryBufferService.addEntry(1L, 100L);
+        entryBufferService.addEntry(1L, 200L);
+
+        entryBufferService.flush(1L);
+
+        ArgumentCaptor<Collection<Long>> batch = ArgumentCaptor.forClass(Collection.class);
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), batch.capture(), eq(2), any(ParameterizedPreparedStatementSetter.class));
+        assertIterableEquals(List.of(100L, 200L), batch.getValue());
+
+        // Nothing is left to write
+        entryBufferService.flush(1L);
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyCollection(), anyInt(), any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRemoveEntry_CoalescesWithPendingEntry() {
+        entryBufferService.addEntry(1L, 100L);
+        entryBufferService.removeEntry(1L, 100L);
+        entryBufferService.addEntry(1L, 200L);
+
+        entryBufferService.flush(1L);
+
+        ArgumentCaptor<Collection<Long>> inserts = ArgumentCaptor.forClass(Collection.class);
+        ArgumentCaptor<Collection<Long>> deletes = ArgumentCaptor.forClass(Collection.class);
+        verify(jdbcTemplate, times(1)).batchUpdate(startsWith("INSERT"), inserts.capture(), eq(1), any(ParameterizedPreparedStatementSetter.class));
+        verify(jdbcTemplate, times(1)).batchUpdate(startsWith("DELETE"), deletes.capture(), eq(1), any(ParameterizedPreparedStatementSetter.class));
+        assertIterableEquals(List.of(200L), inserts.getValue());
+        assertIterableEquals(List.of(100L), deletes.getValue());
+    }
+
+    @Test
+    void testRemoveEntry_AllowsEnteringAgain() {
+        assertTrue(entryBufferService.addEntry(1L, 100L));
+        entryBufferService.removeEntry(1L, 100L);
+
+        assertTrue(entryBufferService.addEntry(1L, 100L), "A withdrawn user can enter again");
+    }
+
+    @Test
+    void testDiscard_DropsPendingEntries() {
+        entryBufferService.addEntry(1L, 100L);
+
+        entryBufferService.discard(1L);
+        entryBufferService.flush(1L);
+
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyCollection(), anyInt(), any());
+    }
+}
@@ -0,0 +1,81 @@
+package org.example.services;
+
+import org.example.utils.EntrySet;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EntrySetTest {
+
+    @Test
+    void testOf_SortsAndDeduplicates() {
+        EntrySet entries = EntrySet.of(30L, 10L, 20L, 10L);
+
+        assertEquals(3, entries.size());
+        assertEquals(List.of(10L, 20L, 30L), entries.toList());
+        assertTrue(entries.contains(20L));
+        assertFalse(entries.contains(25L));
+    }
+
+    @Test
+    void testDrawExcluding_NeverReturnsExcludedUsers() {
+        EntrySet entries = EntrySet.of(LongStream.rangeClosed(1, 50).toArray());
+        // Excluded users at the start, in the middle and at the end, and one that did not enter
+        EntrySet excluded = EntrySet.of(1L, 2L, 25L, 26L, 27L, 49L, 50L, 999L);
+
+        for (int round = 0; round < 1_000; round++) {
+            long[] winners = entries.drawExcluding(10, excluded);
+
+            assertEquals(10, winners.length);
+            assertEquals(10, Arrays.stream(winners).distinct().count(), "Winners must be distinct: " + Arrays.toString(winners));
+            for (long winner : winners) {
+                assertTrue(entries.contains(winner), "Winner " + winner + " did not enter");
+                assertFalse(excluded.contains(winner), "Winner " + winner + " is excluded");
+            }
+        }
+    }
+
+    @Test
+    void testDrawExcluding_EveryEligibleUserWinsWhenThereAreFewer() {
+        EntrySet entries = EntrySet.of(1L, 2L, 3L, 4L, 5L);
+
+        long[] winners = entries.drawExcluding(10, EntrySet.of(2L, 4L));
+
+        Arrays.sort(winners);
+        assertArrayEquals(new long[]{1L, 3L, 5L}, winners);
+    }
+
+    @Test
+    void testDrawExcluding_NothingToDraw() {
+        EntrySet entries = EntrySet.of(1L, 2L, 3L);
+
+        assertEquals(0, entries.drawExcluding(2, EntrySet.of(1L, 2L, 3L)).length, "Everybody is excluded");
+        assertEquals(0, EntrySet.empty().drawExcluding(2, EntrySet.empty()).length);
+        assertEquals(0, entries.drawExcluding(0, EntrySet.empty()).length);
+        assertEquals(0, entries.drawExcluding(-1, EntrySet.empty()).length);
+    }
+
+    @Test
+    void testDrawExcluding_EveryEligibleUserHasTheSameChance() {
+        EntrySet entries = EntrySet.of(LongStream.rangeClosed(1, 10).toArray());
+        EntrySet excluded = EntrySet.of(1L, 5L, 10L);
+        int rounds = 21_000;
+        int[] hits = new int[11];
+        for (int round = 0; round < rounds; round++) {
+            for (long winner : entries.drawExcluding(2, excluded)) {
+                hits[(int) winner]++;
+            }
+        }
+
+        // 7 eligible users, 2 winners per draw: every eligible user is expected 6000 times
+        int expected = rounds * 2 / 7;
+        for (long userId : List.of(2L, 3L, 4L, 6L, 7L, 8L, 9L)) {
+            assertEquals(expected, hits[(int) userId], expected * 0.1, "User " + userId + " won " + hits[(int) userId] + " times");
+        }
+    }
+}
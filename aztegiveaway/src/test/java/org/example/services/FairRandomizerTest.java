@@ -0,0 +1,82 @@
+package org.example.services;
+
+import org.example.utils.FairRandomizer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FairRandomizerTest {
+
+    @Test
+    void testDrawIndices_DistinctAndInRange() {
+        for (int round = 0; round < 1_000; round++) {
+            int[] indices = FairRandomizer.drawIndices(20, 7);
+
+            assertEquals(7, indices.length);
+            assertEquals(7, Arrays.stream(indices).distinct().count(), "Indices must be distinct: " + Arrays.toString(indices));
+            assertTrue(Arrays.stream(indices).allMatch(index -> index >= 0 && index < 20), "Index out of range: " + Arrays.toString(indices));
+        }
+    }
+
+    @Test
+    void testDrawIndices_CountIsMinOfWinnersAndSize() {
+        assertEquals(3, FairRandomizer.drawIndices(3, 10).length);
+        assertEquals(10, FairRandomizer.drawIndices(1_000_000, 10).length);
+
+        // More winners than entries: every entry wins exactly once
+        int[] indices = FairRandomizer.drawIndices(5, 5);
+        Arrays.sort(indices);
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4}, indices);
+    }
+
+    @Test
+    void testDrawIndices_NothingToDraw() {
+        assertEquals(0, FairRandomizer.drawIndices(0, 3).length);
+        assertEquals(0, FairRandomizer.drawIndices(10, 0).length);
+        assertEquals(0, FairRandomizer.drawIndices(10, -1).length);
+        assertEquals(0, FairRandomizer.drawIndices(-1, 3).length);
+    }
+
+    @Test
+    void testDrawIndices_EveryIndexHasTheSameChance() {
+        int size = 10;
+        int winners = 3;
+        int rounds = 30_000;
+        int[] hits = new int[size];
+        for (int round = 0; round < rounds; round++) {
+            for (int index : FairRandomizer.drawIndices(size, winners)) {
+                hits[index]++;
+            }
+        }
+
+        // Every index is expected 9000 times, the standard deviation is about 80
+        int expected = rounds * winners / size;
+        for (int index = 0; index < size; index++) {
+            assertEquals(expected, hits[index], expected * 0.1, "Index " + index + " was drawn " + hits[index] + " times");
+        }
+    }
+
+    @Test
+    void testSelectWinners_DoesNotModifyEntries() {
+        long[] entries = LongStream.rangeClosed(1, 100).toArray();
+        long[] copy = entries.clone();
+
+        long[] winners = FairRandomizer.selectWinners(entries, 10);
+
+        assertArrayEquals(copy, entries);
+        assertEquals(10, Arrays.stream(winners).distinct().count());
+        assertTrue(Arrays.stream(winners).allMatch(winner -> winner >= 1 && winner <= 100));
+    }
+
+    @Test
+    void testSelectWinners_InvalidInput() {
+        assertTrue(FairRandomizer.selectWinners(List.of(1L, 2L), 0).isEmpty());
+        assertTrue(FairRandomizer.selectWinners(List.<Long>of(), 2).isEmpty());
+        assertEquals(0, FairRandomizer.selectWinners(new long[]{1L, 2L}, -1).length);
+    }
+}
@@ -0,0 +1,223 @@
+package org.example.services;
+
+import org.example.config.ShardConfig;
+import org.example.entities.GiveawayLeaseEntity;
+import org.example.repositories.GiveawayLeaseRepository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Pageable;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class GiveawayLeaseServiceTest {
+
+    private static final String INSTANCE_ID = "pod-1";
+    private static final long GUILD_ID = 100L;
+    private static final ShardConfig ALL_SHARDS = new ShardConfig(-1, 0, -1);
+
+    @Mock
+    private GiveawayLeaseRepository giveawayLeaseRepository;
+
+    private GiveawayLeaseService giveawayLeaseService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        // Long heartbeat interval so that only explicit heartbeats run during the tests
+        giveawayLeaseService = new GiveawayLeaseService(giveawayLeaseRepository, ALL_SHARDS, INSTANCE_ID, 30, 3600);
+    }
+
+    @AfterEach
+    void tearDown() {
+        giveawayLeaseService.shutdown();
+    }
+
+    @Test
+    void testTryAcquire_Owned() {
+        when(giveawayLeaseRepository.existsByGiveawayIdAndOwner(1L, INSTANCE_ID)).thenReturn(true);
+
+        assertTrue(giveawayLeaseService.tryAcquire(1L, GUILD_ID));
+        verify(giveawayLeaseRepository, times(1)).upsertIfAvailable(eq(1L), eq(INSTANCE_ID), any(Instant.class), any(Instant.class), eq(0));
+    }
+
+    @Test
+    void testTryAcquire_OwnedByAnotherInstance() {
+        when(giveawayLeaseRepository.existsByGiveawayIdAndOwner(1L, INSTANCE_ID)).thenReturn(false);
+
+        assertFalse(giveawayLeaseService.tryAcquire(1L, GUILD_ID));
+    }
+
+    @Test
+    void testIsOwner_TakenOverMeanwhile() {
+        GiveawayLeaseRepository leaseTable = leaseTable();
+        GiveawayLeaseService staleOwner = new GiveawayLeaseService(leaseTable, ALL_SHARDS, "pod-1", 30, 3600);
+        GiveawayLeaseService newOwner = new GiveawayLeaseService(leaseTable, ALL_SHARDS, "pod-2", 30, 3600);
+        assertTrue(staleOwner.tryAcquire(1L, GUILD_ID));
+
+        // The heartbeat of the stale owner stalled until its lease expired
+        leaseTable.expireAll("pod-1", Instant.EPOCH);
+        assertTrue(newOwner.tryAcquire(1L, GUILD_ID));
+
+        assertFalse(staleOwner.isOwner(1L));
+        assertTrue(newOwner.isOwner(1L));
+        staleOwner.shutdown();
+        newOwner.shutdown();
+    }
+
+    @Test
+    void testHeartbeat_RenewsLeasesWithoutTakeoverBeforeReady() {
+        giveawayLeaseService.heartbeat();
+
+        verify(giveawayLeaseRepository, times(1)).renewAll(eq(INSTANCE_ID), any(Instant.class));
+        verify(giveawayLeaseRepository, never()).findExpired(any(), anyInt(), anyInt(), any());
+    }
+
+    @Test
+    void testHeartbeat_TakesOverExpiredLeases() {
+        when(giveawayLeaseRepository.findExpired(any(Instant.class), anyInt(), anyInt(), any(Pageable.class)))
+                .thenReturn(List.of(new GiveawayLeaseEntity(1L, "pod-2", Instant.EPOCH, 0), new GiveawayLeaseEntity(2L, "pod-2", Instant.EPOCH, 0)));
+        when(giveawayLeaseRepository.existsByGiveawayIdAndOwner(1L, INSTANCE_ID)).thenReturn(true);
+        when(giveawayLeaseRepository.existsByGiveawayIdAndOwner(2L, INSTANCE_ID)).thenReturn(false);
+        List<Long> takenOver = new ArrayList<>();
+        giveawayLeaseService.setTakeoverListener(takenOver::add);
+
+        giveawayLeaseService.heartbeat();
+
+        assertEquals(List.of(1L), takenOver);
+    }
+
+    @Test
+    void testShutdown_ReleasesOwnLeases() {
+        giveawayLeaseService.shutdown();
+
+        verify(giveawayLeaseRepository, atLeastOnce()).expireAll(INSTANCE_ID, Instant.EPOCH);
+        verify(giveawayLeaseRepository, never()).deleteByGiveawayId(anyLong());
+    }
+
+    @Test
+    void testShutdown_LeasesAreTakenOverByAnotherInstance() {
+        GiveawayLeaseRepository leaseTable = leaseTable();
+        GiveawayLeaseService firstInstance = new GiveawayLeaseService(leaseTable, ALL_SHARDS, "pod-1", 30, 3600);
+        GiveawayLeaseService secondInstance = new GiveawayLeaseService(leaseTable, ALL_SHARDS, "pod-2", 30, 3600);
+        List<Long> takenOver = new ArrayList<>();
+        secondInstance.setTakeoverListener(takenOver::add);
+
+        assertTrue(firstInstance.tryAcquire(1L, GUILD_ID));
+        assertFalse(secondInstance.tryAcquire(1L, GUILD_ID));
+        secondInstance.heartbeat();
+        assertTrue(takenOver.isEmpty());
+
+        firstInstance.shutdown();
+        secondInstance.heartbeat();
+
+        assertEquals(List.of(1L), takenOver);
+        assertTrue(leaseTable.existsByGiveawayIdAndOwner(1L, "pod-2"));
+        secondInstance.shutdown();
+    }
+
+    @Test
+    void testTryAcquire_GuildOnAnotherShardIsHandedOver() {
+        GiveawayLeaseRepository leaseTable = leaseTable();
+        GiveawayLeaseService firstHalf = new GiveawayLeaseService(leaseTable, new ShardConfig(2, 0, 0), "pod-1", 30, 3600);
+        GiveawayLeaseService secondHalf = new GiveawayLeaseService(leaseTable, new ShardConfig(2, 1, 1), "pod-2", 30, 3600);
+        List<Long> takenOverByFirst = new ArrayList<>();
+        List<Long> takenOverBySecond = new ArrayList<>();
+        firstHalf.setTakeoverListener(takenOverByFirst::add);
+        secondHalf.setTakeoverListener(takenOverBySecond::add);
+        long guildOnSecondShard = 1L << 22;
+
+        assertFalse(firstHalf.tryAcquire(1L, guildOnSecondShard));
+        assertFalse(leaseTable.existsByGiveawayIdAndOwner(1L, "pod-1"));
+
+        // Only the instance running the shard of the guild takes the handed over lease
+        firstHalf.heartbeat();
+        secondHalf.heartbeat();
+
+        assertTrue(takenOverByFirst.isEmpty());
+        assertEquals(List.of(1L), takenOverBySecond);
+        assertTrue(leaseTable.existsByGiveawayIdAndOwner(1L, "pod-2"));
+        firstHalf.shutdown();
+        secondHalf.shutdown();
+    }
+
+    @Test
+    void testTryAcquire_HandOverKeepsTheOwner() {
+        GiveawayLeaseRepository leaseTable = leaseTable();
+        GiveawayLeaseService firstHalf = new GiveawayLeaseService(leaseTable, new ShardConfig(2, 0, 0), "pod-1", 30, 3600);
+        GiveawayLeaseService secondHalf = new GiveawayLeaseService(leaseTable, new ShardConfig(2, 1, 1), "pod-2", 30, 3600);
+        long guildOnSecondShard = 1L << 22;
+
+        assertTrue(secondHalf.tryAcquire(1L, guildOnSecondShard));
+        assertFalse(firstHalf.tryAcquire(1L, guildOnSecondShard));
+
+        assertTrue(secondHalf.isOwner(1L));
+        firstHalf.shutdown();
+        secondHalf.shutdown();
+    }
+
+    private record Lease(String owner, Instant expiresAt, int shard) {}
+
+    // A lease table in memory that follows the queries of the repository
+    private static GiveawayLeaseRepository leaseTable() {
+        Map<Long, Lease> leases = new HashMap<>();
+        GiveawayLeaseRepository repository = mock(GiveawayLeaseRepository.class);
+
+        when(repository.upsertIfAvailable(anyLong(), anyString(), any(Instant.class), any(Instant.class), anyInt())).thenAnswer(invocation -> {
+            Long giveawayId = invocation.getArgument(0);
+            String owner = invocation.getArgument(1);
+            Instant now = invocation.getArgument(3);
+            Lease lease = leases.get(giveawayId);
+            if (lease == null || lease.owner().equals(owner) || lease.expiresAt().isBefore(now)) {
+                leases.put(giveawayId, new Lease(owner, invocation.getArgument(2), invocation.getArgument(4)));
+                return 1;
+            }
+            return 0;
+        });
+        when(repository.insertExpiredIfAbsent(anyLong(), any(Instant.class), anyInt())).thenAnswer(invocation -> {
+            Lease lease = new Lease("", invocation.getArgument(1), invocation.getArgument(2));
+            return leases.putIfAbsent(invocation.getArgument(0), lease) == null ? 1 : 0;
+        });
+        when(repository.existsByGiveawayIdAndOwner(anyLong(), anyString())).thenAnswer(invocation -> {
+            Lease lease = leases.get(invocation.<Long>getArgument(0));
+            return lease != null && lease.owner().equals(invocation.getArgument(1));
+        });
+        when(repository.renewAll(anyString(), any(Instant.class))).thenAnswer(invocation ->
+                setExpiry(leases, invocation.getArgument(0), invocation.getArgument(1)));
+        when(repository.expireAll(anyString(), any(Instant.class))).thenAnswer(invocation ->
+                setExpiry(leases, invocation.getArgument(0), invocation.getArgument(1)));
+        when(repository.findExpired(any(Instant.class), anyInt(), anyInt(), any(Pageable.class))).thenAnswer(invocation -> {
+            Instant now = invocation.getArgument(0);
+            int firstShard = invocation.getArgument(1);
+            int lastShard = invocation.getArgument(2);
+            return leases.entrySet().stream()
+                    .filter(lease -> lease.getValue().expiresAt().isBefore(now))
+                    .filter(lease -> lease.getValue().shard() >= firstShard && lease.getValue().shard() <= lastShard)
+                    .map(lease -> new GiveawayLeaseEntity(lease.getKey(), lease.getValue().owner(), lease.getValue().expiresAt(), lease.getValue().shard()))
+                    .toList();
+        });
+        return repository;
+    }
+
+    private static int setExpiry(Map<Long, Lease> leases, String owner, Instant expiresAt) {
+        int updated = 0;
+        for (Map.Entry<Long, Lease> lease : leases.entrySet()) {
+            if (lease.getValue().owner().equals(owner)) {
+                lease.setValue(new Lease(owner, expiresAt, lease.getValue().shard()));
+                updated++;
+            }
+        }
+        return updated;
+    }
+}
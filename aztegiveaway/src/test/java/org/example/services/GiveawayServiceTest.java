@@ -1,13 +1,21 @@
 package org.example.services;
 
 import org.example.entities.GiveawayEntity;
+import org.example.entities.GiveawayStatus;
+import org.example.entities.WinnerEntity;
+import org.example.repositories.GiveawayEntryRepository;
 import org.example.repositories.GiveawayRepository;
+import org.example.utils.EntrySet;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.ArrayList;
 import java.util.Optional;
@@ -21,6 +29,24 @@ class GiveawayServiceTest {
     @Mock
     private GiveawayRepository giveawayRepository;
 
+    @Mock
+    private GiveawayEntryRepository giveawayEntryRepository;
+
+    @Mock
+    private EntryBufferService entryBufferService;
+
+    @Mock
+    private WinnerService winnerService;
+
+    @Mock
+    private GiveawayLeaseService giveawayLeaseService;
+
+    @Mock
+    private ActiveGiveawayIndex activeGiveawayIndex;
+
+    @Mock
+    private ScheduleSnapshot scheduleSnapshot;
+
     @InjectMocks
     private GiveawayService giveawayService;
 
@@ -76,6 +102,49 @@ class GiveawayServiceTest {
         verify(giveawayRepository, times(1)).findAll();
     }
 
+    @Test
+    void testGetUnfinishedGiveaways() {
+        List<GiveawayEntity> giveaways = List.of(new GiveawayEntity());
+        when(giveawayRepository.findPageByStatusNot(GiveawayStatus.ENDED, 5L, PageRequest.of(0, 10))).thenReturn(giveaways);
+
+        List<GiveawayEntity> result = giveawayService.getUnfinishedGiveaways(5L, 10);
+        assertEquals(1, result.size());
+        verify(giveawayRepository, never()).findAll();
+    }
+
+    @Test
+    void testMarkGiveawayEnded() {
+        when(giveawayRepository.updateStatus(1L, GiveawayStatus.ENDED)).thenReturn(1);
+
+        giveawayService.markGiveawayEnded(1L);
+        verify(giveawayRepository, times(1)).updateStatus(1L, GiveawayStatus.ENDED);
+        verify(giveawayLeaseService, times(1)).release(1L);
+        verify(activeGiveawayIndex, times(1)).removeGiveaway(1L);
+        verify(scheduleSnapshot, times(1)).remove(1L);
+    }
+
+    @Test
+    void testCreateGiveaway_IndexesActiveGiveaway() {
+        GiveawayEntity giveaway = new GiveawayEntity();
+        giveaway.setId(1L);
+        giveaway.setMessageId(10L);
+
+        giveawayService.createGiveaway(giveaway);
+        verify(activeGiveawayIndex, times(1)).put(10L, 1L);
+    }
+
+    @Test
+    void testUpdateGiveaway_PlannedIsNotIndexed() {
+        GiveawayEntity giveaway = new GiveawayEntity();
+        giveaway.setId(1L);
+        giveaway.setChannelId(5L);
+        giveaway.setStatus(GiveawayStatus.PLANNED);
+        when(giveawayRepository.updateIfVersion(eq(1L), eq(0L), any(), any(), any(), anyInt(), anyLong(), any(), any(), any(), any())).thenReturn(1);
+
+        assertTrue(giveawayService.updateGiveaway(giveaway));
+        verify(activeGiveawayIndex, never()).put(anyLong(), anyLong());
+    }
+
     @Test
     void testDeleteGiveaway() {
         when(giveawayRepository.existsById(1L)).thenReturn(true);
@@ -83,6 +152,10 @@ class GiveawayServiceTest {
 
         giveawayService.deleteGiveaway(1L);
         verify(giveawayRepository, times(1)).deleteById(1L);
+        verify(giveawayEntryRepository, times(1)).deleteByGiveawayId(1L);
+        verify(entryBufferService, times(1)).discard(1L);
+        verify(activeGiveawayIndex, times(1)).removeGiveaway(1L);
+        verify(scheduleSnapshot, times(1)).remove(1L);
     }
 
     @Test
@@ -97,21 +170,192 @@ class GiveawayServiceTest {
     void testUpdateGiveaway() {
         GiveawayEntity giveaway = new GiveawayEntity();
         giveaway.setId(1L);
-        when(giveawayRepository.existsById(1L)).thenReturn(true);
+        giveaway.setMessageId(10L);
+        giveaway.setChannelId(5L);
+        giveaway.setVersion(3L);
+        when(giveawayRepository.updateIfVersion(eq(1L), eq(3L), eq(10L), any(), any(), anyInt(), anyLong(), any(), any(), any(), any())).thenReturn(1);
 
-        giveawayService.updateGiveaway(giveaway);
-        verify(giveawayRepository, times(1)).save(giveaway);
+        assertTrue(giveawayService.updateGiveaway(giveaway));
+        assertEquals(4L, giveaway.getVersion());
+        verify(activeGiveawayIndex, times(1)).put(10L, 1L);
+        verify(giveawayRepository, never()).save(any());
+    }
+
+    @Test
+    void testUpdateGiveaway_ModifiedConcurrently() {
+        // A copy read before the giveaway was drawn, the row is at a newer version now
+        GiveawayEntity giveaway = new GiveawayEntity();
+        giveaway.setId(1L);
+        giveaway.setMessageId(10L);
+        giveaway.setChannelId(5L);
+        giveaway.setVersion(3L);
+        when(giveawayRepository.updateIfVersion(eq(1L), eq(3L), eq(10L), any(), any(), anyInt(), anyLong(), any(), any(), any(), any())).thenReturn(0);
+
+        assertFalse(giveawayService.updateGiveaway(giveaway));
+        assertEquals(3L, giveaway.getVersion());
+        verify(activeGiveawayIndex, never()).put(anyLong(), anyLong());
     }
 
     @Test
     void testGetGiveawayEntries() {
+        when(giveawayEntryRepository.findEntrySetByGiveawayId(1L)).thenReturn(EntrySet.of(1L, 2L, 3L));
+
+        EntrySet entries = giveawayService.getGiveawayEntries(1L);
+        assertEquals(3, entries.size());
+        verify(giveawayEntryRepository, times(1)).findEntrySetByGiveawayId(1L);
+        verify(giveawayRepository, never()).findById(1L);
+    }
+
+    @Test
+    void testCountActiveGiveaways() {
+        when(giveawayRepository.countActive()).thenReturn(4L);
+
+        assertEquals(4L, giveawayService.countActiveGiveaways());
+    }
+
+    @Test
+    void testIsAcceptingEntries() {
+        when(activeGiveawayIndex.get(10L)).thenReturn(1L);
+        when(activeGiveawayIndex.get(20L)).thenReturn(ActiveGiveawayIndex.NO_GIVEAWAY);
+
+        assertTrue(giveawayService.isAcceptingEntries(10L));
+        assertFalse(giveawayService.isAcceptingEntries(20L));
+    }
+
+    @Test
+    void testFlushPendingEntries() {
+        giveawayService.flushPendingEntries(1L);
+        verify(entryBufferService, times(1)).flush(1L);
+    }
+
+    @Test
+    void testReleaseEntryBuffer_FlushesBeforeDiscarding() {
+        giveawayService.releaseEntryBuffer(1L);
+
+        InOrder inOrder = inOrder(entryBufferService);
+        inOrder.verify(entryBufferService).flush(1L);
+        inOrder.verify(entryBufferService).discard(1L);
+    }
+
+    @Test
+    void testDrawWinners_ClaimsDrawsAndStoresWinners() {
         GiveawayEntity giveaway = new GiveawayEntity();
         giveaway.setId(1L);
-        giveaway.setEntries(List.of(1L, 2L, 3L));
+        giveaway.setNumberOfWinners(2);
         when(giveawayRepository.findById(1L)).thenReturn(Optional.of(giveaway));
+        when(giveawayRepository.claimForDrawing(1L)).thenReturn(1);
+        when(giveawayEntryRepository.countByGiveawayId(1L)).thenReturn(3L);
+        when(giveawayEntryRepository.findUserIdsAtOffsets(eq(1L), argThat(offsets -> offsets.length == 2
+                && offsets[0] != offsets[1] && offsets[0] >= 0 && offsets[0] < 3 && offsets[1] >= 0 && offsets[1] < 3)))
+                .thenReturn(new long[]{300L, 100L});
 
-        List<Long> entries = giveawayService.getGiveawayEntries(1L);
-        assertEquals(3, entries.size());
-        verify(giveawayRepository, times(1)).findById(1L);
+        GiveawayService.DrawResult result = giveawayService.drawWinners(1L);
+
+        assertNotNull(result);
+        assertEquals(List.of(300L, 100L), result.winnerIds());
+        assertEquals(3, result.entryCount());
+        verify(winnerService, times(1)).addWinners(argThat(winners -> winners.size() == 2));
+        verify(activeGiveawayIndex, times(1)).remove(giveaway.getMessageId());
+        verify(giveawayEntryRepository, never()).findEntrySetByGiveawayId(anyLong());
+    }
+
+    @Test
+    void testDrawWinners_IndexUpdatedOnlyAfterCommit() {
+        GiveawayEntity giveaway = new GiveawayEntity();
+        giveaway.setId(1L);
+        giveaway.setMessageId(10L);
+        giveaway.setNumberOfWinners(1);
+        when(giveawayRepository.findById(1L)).thenReturn(Optional.of(giveaway));
+        when(giveawayRepository.claimForDrawing(1L)).thenReturn(1);
+        when(giveawayEntryRepository.countByGiveawayId(1L)).thenReturn(1L);
+        when(giveawayEntryRepository.findUserIdsAtOffsets(eq(1L), any(int[].class))).thenReturn(new long[]{100L});
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            giveawayService.drawWinners(1L);
+            // A rollback would leave the giveaway ACTIVE, it must still accept entries until the commit
+            verify(activeGiveawayIndex, never()).remove(anyLong());
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            verify(activeGiveawayIndex, times(1)).remove(10L);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testDrawWinners_NoEntries() {
+        GiveawayEntity giveaway = new GiveawayEntity();
+        giveaway.setId(1L);
+        giveaway.setNumberOfWinners(2);
+        when(giveawayRepository.findById(1L)).thenReturn(Optional.of(giveaway));
+        when(giveawayRepository.claimForDrawing(1L)).thenReturn(1);
+        when(giveawayEntryRepository.countByGiveawayId(1L)).thenReturn(0L);
+        when(giveawayEntryRepository.findUserIdsAtOffsets(eq(1L), argThat(offsets -> offsets.length == 0))).thenReturn(new long[0]);
+
+        GiveawayService.DrawResult result = giveawayService.drawWinners(1L);
+
+        assertNotNull(result);
+        assertTrue(result.winnerIds().isEmpty());
+        assertEquals(0, result.entryCount());
+    }
+
+    @Test
+    void testDrawWinners_InvalidNumberOfWinners() {
+        // Rows written before the number of winners was validated must still end, without winners
+        GiveawayEntity giveaway = new GiveawayEntity();
+        giveaway.setId(1L);
+        giveaway.setNumberOfWinners(-1);
+        when(giveawayRepository.findById(1L)).thenReturn(Optional.of(giveaway));
+        when(giveawayRepository.claimForDrawing(1L)).thenReturn(1);
+        when(giveawayEntryRepository.countByGiveawayId(1L)).thenReturn(5L);
+        when(giveawayEntryRepository.findUserIdsAtOffsets(eq(1L), argThat(offsets -> offsets.length == 0))).thenReturn(new long[0]);
+
+        GiveawayService.DrawResult result = giveawayService.drawWinners(1L);
+
+        assertNotNull(result);
+        assertTrue(result.winnerIds().isEmpty());
+        assertEquals(5, result.entryCount());
+    }
+
+    @Test
+    void testDrawWinners_AlreadyDrawnReturnsStoredWinners() {
+        GiveawayEntity giveaway = new GiveawayEntity();
+        giveaway.setId(1L);
+        giveaway.setMessageId(10L);
+        giveaway.setGuildId(5L);
+        giveaway.setStatus(GiveawayStatus.DRAWING);
+        when(giveawayRepository.findById(1L)).thenReturn(Optional.of(giveaway));
+        when(winnerService.getWinnersByGiveawayMessageIdAndGuildId(10L, 5L))
+                .thenReturn(List.of(new WinnerEntity("title", 10L, 100L, 5L)));
+
+        GiveawayService.DrawResult result = giveawayService.drawWinners(1L);
+
+        assertEquals(List.of(100L), result.winnerIds());
+        assertEquals(-1, result.entryCount());
+        verify(giveawayRepository, never()).claimForDrawing(anyLong());
+        verify(winnerService, never()).addWinners(any());
+    }
+
+    @Test
+    void testDrawWinners_ClaimedElsewhere() {
+        GiveawayEntity giveaway = new GiveawayEntity();
+        giveaway.setId(1L);
+        when(giveawayRepository.findById(1L)).thenReturn(Optional.of(giveaway));
+        when(giveawayRepository.claimForDrawing(1L)).thenReturn(0);
+
+        assertNull(giveawayService.drawWinners(1L));
+        verify(giveawayEntryRepository, never()).countByGiveawayId(anyLong());
+    }
+
+    @Test
+    void testDrawWinners_EndedIsSkipped() {
+        GiveawayEntity giveaway = new GiveawayEntity();
+        giveaway.setId(1L);
+        giveaway.setStatus(GiveawayStatus.ENDED);
+        when(giveawayRepository.findById(1L)).thenReturn(Optional.of(giveaway));
+
+        assertNull(giveawayService.drawWinners(1L));
+        verify(giveawayRepository, never()).claimForDrawing(anyLong());
     }
 }
@@ -0,0 +1,59 @@
+package org.example.services;
+
+import org.example.config.LocaleConfig;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class LocaleConfigTest {
+
+    @Mock
+    private LanguagePreferenceService languagePreferenceService;
+
+    private LocaleConfig localeConfig;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        localeConfig = new LocaleConfig(languagePreferenceService, 100, 10);
+    }
+
+    @Test
+    void testGetLocaleForGuild_Cached() {
+        when(languagePreferenceService.getLanguagePreference(1L)).thenReturn("ro");
+
+        assertEquals(LocaleConfig.ROMANIAN, localeConfig.getLocaleForGuild(1L));
+        assertEquals(LocaleConfig.ROMANIAN, localeConfig.getLocaleForGuild(1L));
+
+        verify(languagePreferenceService, times(1)).getLanguagePreference(1L);
+    }
+
+    @Test
+    void testInvalidate_ReloadsThePreference() {
+        when(languagePreferenceService.getLanguagePreference(1L)).thenReturn("en", "ro");
+
+        assertEquals(LocaleConfig.ENGLISH, localeConfig.getLocaleForGuild(1L));
+        localeConfig.invalidate(1L);
+
+        assertEquals(LocaleConfig.ROMANIAN, localeConfig.getLocaleForGuild(1L));
+    }
+
+    @Test
+    void testInvalidateDuringLoad_StaleLocaleIsNotCached() {
+        // The preference changes to "ro" while the old "en" is being loaded
+        when(languagePreferenceService.getLanguagePreference(1L)).thenAnswer(invocation -> {
+            localeConfig.invalidate(1L);
+            return "en";
+        }).thenReturn("ro");
+
+        assertEquals(LocaleConfig.ENGLISH, localeConfig.getLocaleForGuild(1L));
+
+        assertEquals(0, localeConfig.getCacheSize());
+        assertEquals(LocaleConfig.ROMANIAN, localeConfig.getLocaleForGuild(1L));
+    }
+}
@@ -0,0 +1,79 @@
+package org.example.services;
+
+import org.example.utils.MutableEntrySet;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MutableEntrySetTest {
+
+    @Test
+    void testAddRejectsDuplicates() {
+        MutableEntrySet entries = new MutableEntrySet();
+
+        assertTrue(entries.add(300L));
+        assertTrue(entries.add(100L));
+        assertFalse(entries.add(300L));
+
+        assertEquals(2, entries.size());
+        assertTrue(entries.contains(100L));
+        assertFalse(entries.contains(200L));
+    }
+
+    @Test
+    void testDuplicatesAreRejectedAcrossMerges() {
+        MutableEntrySet entries = new MutableEntrySet();
+        for (long userId = 5_000; userId > 0; userId--) {
+            assertTrue(entries.add(userId));
+        }
+
+        for (long userId = 1; userId <= 5_000; userId++) {
+            assertFalse(entries.add(userId), "User " + userId + " was added twice");
+        }
+        assertEquals(5_000, entries.size());
+    }
+
+    @Test
+    void testRemoveFromMergedAndRecentEntries() {
+        MutableEntrySet entries = new MutableEntrySet();
+        for (long userId = 1; userId <= 1_500; userId++) {
+            entries.add(userId);
+        }
+
+        assertTrue(entries.remove(10L)); // merged
+        assertTrue(entries.remove(1_400L)); // recent
+        assertFalse(entries.remove(10L));
+        assertFalse(entries.remove(9_999L));
+
+        assertEquals(1_498, entries.size());
+        assertFalse(entries.contains(10L));
+        assertFalse(entries.contains(1_400L));
+        assertTrue(entries.add(10L), "A withdrawn user can enter again");
+    }
+
+    @Test
+    void testMatchesHashSet() {
+        Random random = new Random(42);
+        MutableEntrySet entries = new MutableEntrySet();
+        Set<Long> expected = new HashSet<>();
+
+        for (int i = 0; i < 50_000; i++) {
+            long userId = random.nextInt(10_000);
+            if (random.nextInt(10) == 0) {
+                assertEquals(expected.remove(userId), entries.remove(userId));
+            } else {
+                assertEquals(expected.add(userId), entries.add(userId));
+            }
+        }
+
+        assertEquals(expected.size(), entries.size());
+        for (long userId = 0; userId < 10_000; userId++) {
+            assertEquals(expected.contains(userId), entries.contains(userId));
+        }
+    }
+}
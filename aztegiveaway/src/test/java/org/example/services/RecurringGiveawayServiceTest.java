@@ -0,0 +1,193 @@
+package org.example.services;
+
+import org.example.entities.GiveawayEntity;
+import org.example.entities.GiveawayStatus;
+import org.example.entities.RecurringGiveawayEntity;
+import org.example.repositories.RecurringGiveawayRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class RecurringGiveawayServiceTest {
+
+    @Mock
+    private RecurringGiveawayRepository recurringGiveawayRepository;
+
+    @Mock
+    private GiveawayService giveawayService;
+
+    @InjectMocks
+    private RecurringGiveawayService recurringGiveawayService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void testNormalizeCron() {
+        assertEquals("0 0 18 * * MON", RecurringGiveawayService.normalizeCron(" 0  18 * * MON "));
+        assertEquals("0 0 18 * * MON", RecurringGiveawayService.normalizeCron("0 0 18 * * MON"));
+        assertEquals("@weekly", RecurringGiveawayService.normalizeCron("@weekly"));
+        assertNull(RecurringGiveawayService.normalizeCron("every monday"));
+        assertNull(RecurringGiveawayService.normalizeCron(null));
+    }
+
+    @Test
+    void testParseZone() {
+        assertEquals("Europe/Bucharest", RecurringGiveawayService.parseZone("Europe/Bucharest").getId());
+        assertNull(RecurringGiveawayService.parseZone("Mars/Olympus"));
+    }
+
+    @Test
+    void testNextFireTime_InTimeZone() {
+        // Monday 2024-06-03 is in summer time, 18:00 in Bucharest is 15:00 UTC
+        Instant after = Instant.parse("2024-06-01T00:00:00Z");
+        assertEquals(Instant.parse("2024-06-03T15:00:00Z"),
+                RecurringGiveawayService.nextFireTime("0 0 18 * * MON", "Europe/Bucharest", after));
+    }
+
+    @Test
+    void testCreateInstance_CreatesPlannedGiveawayAndAdvances() {
+        Instant due = Instant.parse("2024-06-03T15:00:00Z");
+        Instant now = Instant.parse("2024-06-03T15:00:01Z");
+        RecurringGiveawayEntity template = template(due, 4);
+        when(recurringGiveawayRepository.advance(1L, due, Instant.parse("2024-06-10T15:00:00Z"))).thenReturn(1);
+
+        GiveawayEntity giveaway = recurringGiveawayService.createInstance(template, now);
+
+        assertNotNull(giveaway);
+        assertEquals("Weekly #5", giveaway.getTitle());
+        assertEquals(GiveawayStatus.PLANNED, giveaway.getStatus());
+        assertEquals(now, giveaway.getStartTime());
+        assertEquals(3_600_000L, giveaway.getDuration());
+        assertEquals("90%", giveaway.getReminderSchedule());
+        verify(giveawayService, times(1)).createGiveaway(giveaway);
+    }
+
+    @Test
+    void testCreateInstance_MissedOccurrencesAreNotReplayed() {
+        // The bot was down for three weeks, only one giveaway is created and the next one is the first after now
+        Instant due = Instant.parse("2024-06-03T15:00:00Z");
+        Instant now = Instant.parse("2024-06-25T12:00:00Z");
+        when(recurringGiveawayRepository.advance(1L, due, Instant.parse("2024-07-01T15:00:00Z"))).thenReturn(1);
+
+        assertNotNull(recurringGiveawayService.createInstance(template(due, 0), now));
+        verify(giveawayService, times(1)).createGiveaway(any(GiveawayEntity.class));
+    }
+
+    @Test
+    void testCreateInstance_AlreadyCreatedByAnotherInstance() {
+        Instant due = Instant.parse("2024-06-03T15:00:00Z");
+        when(recurringGiveawayRepository.advance(eq(1L), eq(due), any(Instant.class))).thenReturn(0);
+
+        assertNull(recurringGiveawayService.createInstance(template(due, 0), due));
+        verify(giveawayService, never()).createGiveaway(any());
+    }
+
+    @Test
+    void testCreateInstance_TitleTakenByAnotherGiveaway() {
+        // "Weekly #5" and "Weekly #6" were created by hand in the same guild
+        Instant due = Instant.parse("2024-06-03T15:00:00Z");
+        when(recurringGiveawayRepository.advance(eq(1L), eq(due), any(Instant.class))).thenReturn(1);
+        when(giveawayService.isTitleTaken("Weekly #5", 3L)).thenReturn(true);
+        when(giveawayService.isTitleTaken("Weekly #6", 3L)).thenReturn(true);
+
+        GiveawayEntity giveaway = recurringGiveawayService.createInstance(template(due, 4), due);
+
+        assertNotNull(giveaway);
+        assertEquals("Weekly #7", giveaway.getTitle());
+        verify(giveawayService, times(1)).createGiveaway(giveaway);
+    }
+
+    @Test
+    void testCreateInstance_LastOccurrenceDeletesTemplate() {
+        // February 30th never comes again: the due occurrence is the last one
+        Instant due = Instant.parse("2024-06-03T15:00:00Z");
+        RecurringGiveawayEntity template = template(due, 4);
+        template.setCron("0 0 0 30 2 *");
+        when(recurringGiveawayRepository.deleteIfDue(1L, due)).thenReturn(1);
+
+        GiveawayEntity giveaway = recurringGiveawayService.createInstance(template, due);
+
+        assertNotNull(giveaway);
+        assertEquals("Weekly #5", giveaway.getTitle());
+        verify(recurringGiveawayRepository, never()).advance(anyLong(), any(), any());
+        verify(giveawayService, times(1)).createGiveaway(giveaway);
+    }
+
+    @Test
+    void testCreateInstance_LastOccurrenceAlreadyCreatedByAnotherInstance() {
+        Instant due = Instant.parse("2024-06-03T15:00:00Z");
+        RecurringGiveawayEntity template = template(due, 4);
+        template.setCron("0 0 0 30 2 *");
+        when(recurringGiveawayRepository.deleteIfDue(1L, due)).thenReturn(0);
+
+        assertNull(recurringGiveawayService.createInstance(template, due));
+        verify(giveawayService, never()).createGiveaway(any());
+    }
+
+    @Test
+    void testCreateInstance_SeveralPlannedGiveawaysWithoutMessage() {
+        // The unique message_id key of the giveaways table: nulls never clash, posted messages do
+        Set<Long> messageIds = new HashSet<>();
+        doAnswer(invocation -> {
+            GiveawayEntity giveaway = invocation.getArgument(0);
+            if (giveaway.hasMessage() && !messageIds.add(giveaway.getMessageId())) {
+                throw new DataIntegrityViolationException("Duplicate entry for key 'message_id'");
+            }
+            return null;
+        }).when(giveawayService).createGiveaway(any(GiveawayEntity.class));
+
+        // A giveaway planned with /giveaway plan is waiting for its start
+        GiveawayEntity planned = new GiveawayEntity();
+        planned.setStatus(GiveawayStatus.PLANNED);
+        giveawayService.createGiveaway(planned);
+
+        // Two templates come due in the same pass
+        Instant due = Instant.parse("2024-06-03T15:00:00Z");
+        RecurringGiveawayEntity daily = template(due, 0);
+        daily.setId(2L);
+        daily.setTitle("Daily");
+        when(recurringGiveawayRepository.advance(anyLong(), eq(due), any(Instant.class))).thenReturn(1);
+
+        GiveawayEntity weeklyInstance = recurringGiveawayService.createInstance(template(due, 0), due);
+        GiveawayEntity dailyInstance = recurringGiveawayService.createInstance(daily, due);
+
+        assertNotNull(weeklyInstance);
+        assertNotNull(dailyInstance);
+        assertFalse(weeklyInstance.hasMessage());
+        assertFalse(dailyInstance.hasMessage());
+        verify(giveawayService, times(3)).createGiveaway(any(GiveawayEntity.class));
+    }
+
+    private static RecurringGiveawayEntity template(Instant nextFireTime, int occurrences) {
+        RecurringGiveawayEntity template = new RecurringGiveawayEntity();
+        template.setId(1L);
+        template.setTitle("Weekly");
+        template.setPrize("Nitro");
+        template.setNumberOfWinners(1);
+        template.setDuration(3_600_000L);
+        template.setChannelId(2L);
+        template.setGuildId(3L);
+        template.setReminderSchedule("90%");
+        template.setCron("0 0 18 * * MON");
+        template.setZone("Europe/Bucharest");
+        template.setNextFireTime(nextFireTime);
+        template.setOccurrences(occurrences);
+        return template;
+    }
+}
@@ -0,0 +1,90 @@
+package org.example.services;
+
+import org.example.utils.ReminderSchedule;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReminderScheduleTest {
+
+    private static final long MINUTE = 60_000L;
+    private static final long START = 1_700_000_000_000L;
+
+    @Test
+    void testParse_NormalizesTheText() {
+        ReminderSchedule schedule = ReminderSchedule.parse("75%,95%,  LAST   10m");
+
+        assertNotNull(schedule);
+        assertEquals("75%, 95%, last 10m", schedule.toString());
+        // The stored text reads back as the same schedule
+        assertEquals(schedule.toString(), ReminderSchedule.parse(schedule.toString()).toString());
+    }
+
+    @Test
+    void testParse_Valid() {
+        assertNotNull(ReminderSchedule.parse("every 10m"));
+        assertNotNull(ReminderSchedule.parse("every 6h"));
+        assertNotNull(ReminderSchedule.parse("last 1h30m"));
+        assertNotNull(ReminderSchedule.parse("1%, 99%"));
+    }
+
+    @Test
+    void testParse_Invalid() {
+        assertNull(ReminderSchedule.parse(null));
+        assertNull(ReminderSchedule.parse("  "));
+        assertNull(ReminderSchedule.parse("last 0m"), "A reminder at the end is pointless");
+        assertNull(ReminderSchedule.parse("every 9m"), "Reminders must be at least 10 minutes apart");
+        assertNull(ReminderSchedule.parse("0%"));
+        assertNull(ReminderSchedule.parse("100%"));
+        assertNull(ReminderSchedule.parse("last 10 minutes"));
+        assertNull(ReminderSchedule.parse("75%, sometimes"), "One invalid part rejects the whole schedule");
+        assertNull(ReminderSchedule.parse("1%, ".repeat(30) + "2%"), "Longer than the column");
+    }
+
+    @Test
+    void testParseOrDefault() {
+        assertEquals(ReminderSchedule.DEFAULT, ReminderSchedule.parseOrDefault(null).toString());
+        assertEquals(ReminderSchedule.DEFAULT, ReminderSchedule.parseOrDefault("not a schedule").toString());
+        assertEquals("90%", ReminderSchedule.parseOrDefault("90%").toString());
+    }
+
+    @Test
+    void testNextReminder_MixedSchedule() {
+        ReminderSchedule schedule = ReminderSchedule.parse("75%, 95%, last 10m");
+        long duration = 100 * MINUTE;
+
+        long first = schedule.nextReminder(START, duration, START);
+        long second = schedule.nextReminder(START, duration, first);
+        long third = schedule.nextReminder(START, duration, second);
+
+        assertEquals(START + 75 * MINUTE, first);
+        assertEquals(START + 90 * MINUTE, second); // last 10m comes before 95%
+        assertEquals(START + 95 * MINUTE, third);
+        assertEquals(-1, schedule.nextReminder(START, duration, third));
+    }
+
+    @Test
+    void testNextReminder_Every() {
+        ReminderSchedule schedule = ReminderSchedule.parse("every 30m");
+        long duration = 100 * MINUTE;
+
+        assertEquals(START + 30 * MINUTE, schedule.nextReminder(START, duration, START));
+        assertEquals(START + 60 * MINUTE, schedule.nextReminder(START, duration, START + 30 * MINUTE));
+        // Counted from the start, not from the given time
+        assertEquals(START + 90 * MINUTE, schedule.nextReminder(START, duration, START + 61 * MINUTE));
+        // The next one would be at 120m, after the end
+        assertEquals(-1, schedule.nextReminder(START, duration, START + 90 * MINUTE));
+    }
+
+    @Test
+    void testNextReminder_ClampedToTheGiveaway() {
+        long duration = 60 * MINUTE;
+
+        // Two hours before the end of a one hour giveaway is before its start
+        assertEquals(-1, ReminderSchedule.parse("last 2h").nextReminder(START, duration, START));
+        // After a restart only the reminders still ahead are sent
+        assertEquals(-1, ReminderSchedule.parse("50%, 90%").nextReminder(START, duration, START + 57 * MINUTE));
+        assertEquals(START + 54 * MINUTE, ReminderSchedule.parse("50%, 90%").nextReminder(START, duration, START + 31 * MINUTE));
+    }
+}
@@ -0,0 +1,119 @@
+package org.example.services;
+
+import org.example.entities.GiveawayEntity;
+import org.example.entities.GiveawayStatus;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScheduleSnapshotTest {
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void testGiveawaysSurviveRestart() {
+        Path file = directory.resolve("schedule.snapshot");
+        ScheduleSnapshot snapshot = open(file);
+        snapshot.put(giveaway(1L, 10L, "75%, last 10m"));
+        snapshot.put(giveaway(2L, 20L, null));
+        snapshot.close();
+
+        List<GiveawayEntity> restored = open(file).getGiveaways();
+
+        assertEquals(2, restored.size());
+        GiveawayEntity first = restored.get(0);
+        assertEquals(1L, first.getId());
+        assertEquals(10L, first.getMessageId());
+        assertEquals(100L, first.getChannelId());
+        assertEquals(1000L, first.getGuildId());
+        assertEquals(Instant.ofEpochMilli(1_700_000_000_000L), first.getStartTime());
+        assertEquals(3_600_000L, first.getDuration());
+        assertEquals(3, first.getNumberOfWinners());
+        assertEquals("Giveaway 1", first.getTitle());
+        assertEquals("75%, last 10m", first.getReminderSchedule());
+        assertEquals(GiveawayStatus.ACTIVE, first.getStatus());
+        assertNull(restored.get(1).getReminderSchedule());
+    }
+
+    @Test
+    void testRemovedGiveawaysAreNotRestored() {
+        Path file = directory.resolve("schedule.snapshot");
+        ScheduleSnapshot snapshot = open(file);
+        snapshot.put(giveaway(1L, 10L, null));
+        snapshot.put(giveaway(2L, 20L, null));
+        snapshot.remove(1L);
+        snapshot.close();
+
+        List<GiveawayEntity> restored = open(file).getGiveaways();
+
+        assertEquals(1, restored.size());
+        assertEquals(2L, restored.get(0).getId());
+    }
+
+    @Test
+    void testStartupCompactsTheLog() throws IOException {
+        Path file = directory.resolve("schedule.snapshot");
+        ScheduleSnapshot snapshot = open(file);
+        for (long id = 1; id <= 100; id++) {
+            snapshot.put(giveaway(id, id * 10, null));
+            snapshot.remove(id);
+        }
+        snapshot.put(giveaway(500L, 5000L, null));
+        snapshot.close();
+        long sizeBefore = Files.size(file);
+
+        ScheduleSnapshot reopened = open(file);
+
+        assertEquals(1, reopened.size());
+        assertTrue(Files.size(file) < sizeBefore / 50);
+        reopened.close();
+    }
+
+    @Test
+    void testRecordCutOffByCrashIsIgnored() throws IOException {
+        Path file = directory.resolve("schedule.snapshot");
+        ScheduleSnapshot snapshot = open(file);
+        snapshot.put(giveaway(1L, 10L, null));
+        snapshot.put(giveaway(2L, 20L, null));
+        snapshot.close();
+        byte[] content = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(content, content.length - 5));
+
+        List<GiveawayEntity> restored = open(file).getGiveaways();
+
+        assertEquals(1, restored.size());
+        assertEquals(1L, restored.get(0).getId());
+    }
+
+    @Test
+    void testDisabledWithoutPath() {
+        ScheduleSnapshot snapshot = open(null);
+        snapshot.put(giveaway(1L, 10L, null));
+
+        assertTrue(snapshot.getGiveaways().isEmpty());
+    }
+
+    private static ScheduleSnapshot open(Path file) {
+        ScheduleSnapshot snapshot = new ScheduleSnapshot(file != null ? file.toString() : "");
+        snapshot.load();
+        return snapshot;
+    }
+
+    private static GiveawayEntity giveaway(long id, long messageId, String reminderSchedule) {
+        GiveawayEntity giveaway = new GiveawayEntity(messageId, "Giveaway " + id, "Prize", 3, 3_600_000L, 100L, 1000L);
+        giveaway.setId(id);
+        giveaway.setStartTime(Instant.ofEpochMilli(1_700_000_000_000L));
+        giveaway.setReminderSchedule(reminderSchedule);
+        return giveaway;
+    }
+}
@@ -0,0 +1,52 @@
+package org.example.services;
+
+import org.example.config.ShardConfig;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardConfigTest {
+
+    // The shard of a guild is taken from the bits of its ID above the 22 bits of the timestamp increment
+    private static long guildOnShard(int shard) {
+        return (long) shard << 22;
+    }
+
+    @Test
+    void testAllShardsByDefault() {
+        ShardConfig shardConfig = new ShardConfig(-1, 0, -1);
+
+        assertFalse(shardConfig.isPartial());
+        assertTrue(shardConfig.isLocal(guildOnShard(0)));
+        assertTrue(shardConfig.isLocal(guildOnShard(7)));
+        assertEquals(0, shardConfig.shardOf(guildOnShard(7)));
+    }
+
+    @Test
+    void testFullRangeIsNotPartial() {
+        ShardConfig shardConfig = new ShardConfig(4, 0, 3);
+
+        assertFalse(shardConfig.isPartial());
+        assertTrue(shardConfig.isLocal(guildOnShard(3)));
+    }
+
+    @Test
+    void testPartialRange() {
+        ShardConfig shardConfig = new ShardConfig(4, 2, 3);
+
+        assertTrue(shardConfig.isPartial());
+        assertEquals(3, shardConfig.getLast());
+        assertFalse(shardConfig.isLocal(guildOnShard(1)));
+        assertTrue(shardConfig.isLocal(guildOnShard(2)));
+        assertTrue(shardConfig.isLocal(guildOnShard(7)));
+        assertEquals(3, shardConfig.shardOf(guildOnShard(7)));
+    }
+
+    @Test
+    void testInvalidRanges() {
+        assertThrows(IllegalArgumentException.class, () -> new ShardConfig(-1, 1, 2));
+        assertThrows(IllegalArgumentException.class, () -> new ShardConfig(4, 3, 2));
+        assertThrows(IllegalArgumentException.class, () -> new ShardConfig(4, 0, 4));
+    }
+}
@@ -4,11 +4,17 @@ import org.example.entities.WinnerEntity;
 import org.example.repositories.WinnerRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import java.util.Collection;
 import java.util.List;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 class WinnerServiceTest {
@@ -16,6 +22,9 @@ class WinnerServiceTest {
     @Mock
     private WinnerRepository winnerRepository;
 
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
     @InjectMocks
     private WinnerService winnerService;
 
@@ -25,21 +34,22 @@ class WinnerServiceTest {
     }
 
     @Test
-    void testAddWinner() {
-        WinnerEntity winner = new WinnerEntity();
-        winnerService.addWinner(winner);
-        verify(winnerRepository, times(1)).save(winner);
+    @SuppressWarnings("unchecked")
+    void testAddWinners_StoresAllWinnersInOneBatch() {
+        List<WinnerEntity> winners = List.of(new WinnerEntity("title", 10L, 100L, 1L), new WinnerEntity("title", 10L, 200L, 1L));
+
+        winnerService.addWinners(winners);
+
+        ArgumentCaptor<Collection<WinnerEntity>> batch = ArgumentCaptor.forClass(Collection.class);
+        verify(jdbcTemplate, times(1)).batchUpdate(startsWith("INSERT IGNORE"), batch.capture(), eq(2), any(ParameterizedPreparedStatementSetter.class));
+        assertIterableEquals(winners, batch.getValue());
     }
 
     @Test
-    void testGetWinnersByGuildId() {
-        Long guildId = 1L;
-        List<WinnerEntity> winners = List.of(new WinnerEntity(), new WinnerEntity());
-        when(winnerRepository.findByGuildId(guildId)).thenReturn(winners);
+    void testAddWinners_Empty() {
+        winnerService.addWinners(List.of());
 
-        List<WinnerEntity> result = winnerService.getWinnersByGuildId(guildId);
-        assertEquals(2, result.size());
-        verify(winnerRepository, times(1)).findByGuildId(guildId);
+        verifyNoInteractions(jdbcTemplate);
     }
 
     @Test
@@ -54,6 +64,37 @@ class WinnerServiceTest {
         verify(winnerRepository, times(1)).findByGiveawayMessageIdAndGuildId(giveawayMessageId, guildId);
     }
 
+    @Test
+    void testGetWinnersPageAfter() {
+        Long guildId = 1L;
+        List<WinnerEntity> winners = List.of(new WinnerEntity(), new WinnerEntity());
+        when(winnerRepository.findPageAfter(guildId, 10L, PageRequest.of(0, 5))).thenReturn(winners);
+
+        List<WinnerEntity> result = winnerService.getWinnersPageAfter(guildId, 10L, 5);
+        assertEquals(2, result.size());
+        verify(winnerRepository, times(1)).findPageAfter(guildId, 10L, PageRequest.of(0, 5));
+    }
+
+    @Test
+    void testGetWinnersPageBefore_IsInAscendingOrder() {
+        Long guildId = 1L;
+        WinnerEntity winner1 = new WinnerEntity("giveawayTitle1", 1L, 123L, guildId);
+        winner1.setId(1L);
+        WinnerEntity winner2 = new WinnerEntity("giveawayTitle1", 1L, 456L, guildId);
+        winner2.setId(2L);
+        when(winnerRepository.findPageBefore(guildId, 3L, PageRequest.of(0, 5))).thenReturn(List.of(winner2, winner1));
+
+        List<WinnerEntity> result = winnerService.getWinnersPageBefore(guildId, 3L, 5);
+        assertEquals(List.of(winner1, winner2), result);
+    }
+
+    @Test
+    void testCountWinnersByGuildId() {
+        when(winnerRepository.countByGuildId(1L)).thenReturn(12L);
+
+        assertEquals(12L, winnerService.countWinnersByGuildId(1L));
+    }
+
     @Test
     void testDeleteWinnersByGiveawayMessageIdAndGuildId() {
         Long giveawayMessageId = 1L;